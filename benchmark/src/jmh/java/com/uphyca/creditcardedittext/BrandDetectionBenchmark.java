@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ブランド判定のコスト
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BrandDetectionBenchmark {
+
+    private static final String NUMBER = "4242424242424242";
+    private static final String FORMATTED = "4242 4242 4242 424";
+    private static final String FORMATTED_NEXT = "4242 4242 4242 4242";
+
+    private CreditCardBrandDetector detector;
+    private boolean toggle;
+
+    @Setup
+    public void setUp() {
+        detector = new CreditCardBrandDetector();
+    }
+
+    /**
+     * {@link CreditCardBrand#getBrand(String)}による判定
+     */
+    @Benchmark
+    public CreditCardBrand getBrand() {
+        return CreditCardBrand.getBrand(NUMBER);
+    }
+
+    /**
+     * セパレーターを含む文字列をレジストリで判定する
+     */
+    @Benchmark
+    public CardBrand registryFormatted() {
+        return CardBrandRegistry.getInstance().getBrand(FORMATTED, 0, FORMATTED.length());
+    }
+
+    /**
+     * 1文字の入力と削除を繰り返し、差分でブランドを判定する
+     */
+    @Benchmark
+    public CardBrand detectorKeystroke() {
+        toggle = !toggle;
+        final String text = toggle ? FORMATTED_NEXT : FORMATTED;
+        return detector.update(text, 0, text.length());
+    }
+}
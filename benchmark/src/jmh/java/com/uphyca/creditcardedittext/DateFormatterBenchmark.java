@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 有効期限の入力一回あたりのコスト（月のチェック、整形、カーソル位置の調整）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DateFormatterBenchmark {
+
+    private CreditCardDateFormatter formatter;
+    private EditResult result;
+
+    @Setup
+    public void setUp() {
+        formatter = new CreditCardDateFormatter();
+        result = new EditResult();
+    }
+
+    /**
+     * 末尾に1文字入力する（整形不要）
+     * "12/2&lt;&gt;" → "12/25&lt;&gt;"
+     */
+    @Benchmark
+    public EditResult append() {
+        return formatter.reduce("12/2", 4, 4, 4, 4, "5", result);
+    }
+
+    /**
+     * 月の入力後に1文字入力してセパレーターが挿入される
+     * "12&lt;&gt;" → "12/2&lt;&gt;"
+     */
+    @Benchmark
+    public EditResult appendNewGroup() {
+        return formatter.reduce("12", 2, 2, 2, 2, "2", result);
+    }
+
+    /**
+     * 中間に1文字入力して後続の数字が整形し直される
+     * "1&lt;&gt;2/5" → "11/&lt;&gt;25"
+     */
+    @Benchmark
+    public EditResult insertMiddle() {
+        return formatter.reduce("12/5", 1, 1, 1, 1, "1", result);
+    }
+
+    /**
+     * DELキーでセパレーターを削除する（直前の数字が削除される）
+     * "12/&lt;&gt;25" → "1&lt;&gt;2/5"
+     */
+    @Benchmark
+    public EditResult deleteSeparator() {
+        return formatter.reduce("12/25", 3, 3, 2, 3, "", result);
+    }
+
+    /**
+     * 未入力状態に有効期限をペーストする
+     */
+    @Benchmark
+    public EditResult paste() {
+        return formatter.reduce("", 0, 0, 0, 0, "1225", result);
+    }
+
+    /**
+     * 月として無効な入力を拒否する（InputFilterの処理だけを計測する）
+     */
+    @Benchmark
+    public CharSequence filterInvalidMonth() {
+        return formatter.filter("3", 0, 1, "1", 1, 1);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * カード番号の入力一回あたりのコスト（フィルター、整形、カーソル位置の調整）
+ * <p>
+ * {@link CreditCardNumberFormatter#reduce}はビューと同じ順序でフィルターと整形を行う。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NumberFormatterBenchmark {
+
+    private CreditCardNumberFormatter formatter;
+    private EditResult result;
+
+    @Setup
+    public void setUp() {
+        // 19桁のペーストを計測するため、19桁の書式を持つブランドを登録する
+        CardBrandRegistry.getInstance().register(
+                new CardBrand("UNIONPAY", 16, 19, new int[]{4, 4, 4, 4, 3}, "62"));
+        formatter = new CreditCardNumberFormatter();
+        result = new EditResult();
+    }
+
+    @TearDown
+    public void tearDown() {
+        CardBrandRegistry.getInstance().reset();
+    }
+
+    /**
+     * 末尾に1文字入力する（整形不要）
+     * "4242 4242 4242 424&lt;&gt;" → "4242 4242 4242 4242&lt;&gt;"
+     */
+    @Benchmark
+    public EditResult append() {
+        return formatter.reduce("4242 4242 4242 424", 18, 18, 18, 18, "2", result);
+    }
+
+    /**
+     * 末尾に1文字入力してセパレーターが挿入される
+     * "4242 4242 4242&lt;&gt;" → "4242 4242 4242 4&lt;&gt;"
+     */
+    @Benchmark
+    public EditResult appendNewGroup() {
+        return formatter.reduce("4242 4242 4242", 14, 14, 14, 14, "4", result);
+    }
+
+    /**
+     * 中間に1文字入力して後続の数字が整形し直される
+     * "4242 1110&lt;&gt; 2222" → "4242 1110 3&lt;&gt;222 2"
+     */
+    @Benchmark
+    public EditResult insertMiddle() {
+        return formatter.reduce("4242 1110 2222", 9, 9, 9, 9, "3", result);
+    }
+
+    /**
+     * DELキーでセパレーターを削除する（直前の数字が削除される）
+     * "4242 4242 &lt;&gt;4242 4242" → "4242 424&lt;&gt;4 2424 242"
+     */
+    @Benchmark
+    public EditResult deleteSeparator() {
+        return formatter.reduce("4242 4242 4242 4242", 10, 10, 9, 10, "", result);
+    }
+
+    /**
+     * 未入力状態に19桁の番号をペーストする
+     */
+    @Benchmark
+    public EditResult paste19() {
+        return formatter.reduce("", 0, 0, 0, 0, "6212345678901234567", result);
+    }
+
+    /**
+     * InputFilterの処理だけを計測する
+     */
+    @Benchmark
+    public CharSequence filterAppend() {
+        return formatter.filter("4", 0, 1, "4242 4242 4242", 14, 14);
+    }
+
+    /**
+     * TextWatcherでの整形だけを計測する
+     */
+    @Benchmark
+    public boolean formatAppend() {
+        return formatter.format("4242 4242 4242", 14, 14, "4242 4242 42424", 15, 15, result);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * セパレーターの除去と挿入のコスト
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SeparatorBenchmark {
+
+    private static final String FORMATTED = "4242 4242 4242 4242";
+    private static final String RAW = "4242424242424242";
+    private static final GroupFormat FORMAT = CreditCardBrand.VISA.getCardBrand().groupFormat();
+
+    private final TextBuffer buffer = new TextBuffer();
+
+    /**
+     * 番号の取得（{@code getNumber()}）で使う文字列の生成
+     */
+    @Benchmark
+    public String removeSeparators() {
+        return CreditCardNumberFormatter.removeSeparators(FORMATTED, 0, FORMATTED.length());
+    }
+
+    /**
+     * 整形済みの文字列の整形し直し（セパレーターの除去と挿入、カーソル位置の調整）
+     */
+    @Benchmark
+    public int reformat() {
+        return TextEdits.reformat(FORMATTED, -1, FORMAT, CreditCardNumberFormatter.SEPARATOR, 10, buffer);
+    }
+
+    /**
+     * セパレーターを含まない文字列の整形
+     */
+    @Benchmark
+    public int reformatRaw() {
+        return TextEdits.reformat(RAW, -1, FORMAT, CreditCardNumberFormatter.SEPARATOR, 8, buffer);
+    }
+}
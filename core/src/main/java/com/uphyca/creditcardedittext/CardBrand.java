@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+/**
+ * definition of card brand (issuing network)
+ * <p>
+ * A definition consists of the IIN prefixes, the allowed lengths of the number,
+ * the grouping of digits and the length of the security code (CVC). Each prefix is a digit string ("34") or an inclusive range
+ * of digit strings of the same length ("2221-2720").
+ * <p>
+ * The built-in definitions are available from {@link CreditCardBrand#getCardBrand()}.
+ * Register your own definitions to {@link CardBrandRegistry}.
+ * Instances are immutable.
+ */
+public final class CardBrand {
+
+    /**
+     * length of the security code of most brands
+     */
+    public static final int DEFAULT_SECURITY_CODE_LENGTH = 3;
+
+    private final String name;
+    private final CreditCardBrand creditCardBrand;
+    private final int minLength;
+    private final int maxLength;
+    private final GroupFormat format;
+    private final int securityCodeLength;
+    private final String[] prefixes;
+    private final IinTrie<Boolean> prefixTrie;
+
+    /**
+     * Create a definition of card brand.
+     * <p>
+     * If {@code name} is the name of a {@link CreditCardBrand} constant,
+     * {@link #getCreditCardBrand()} returns that constant.
+     *
+     * @param name      name of the brand
+     * @param minLength minimum length of the number
+     * @param maxLength maximum length of the number
+     * @param format    number of digits in each group
+     * @param prefixes  IIN prefixes or ranges of prefixes
+     */
+    public CardBrand(@NonNull String name, int minLength, int maxLength, @NonNull int[] format, @NonNull String... prefixes) {
+        this(name, minLength, maxLength, format, DEFAULT_SECURITY_CODE_LENGTH, prefixes);
+    }
+
+    /**
+     * Create a definition of card brand with the length of the security code.
+     *
+     * @param name               name of the brand
+     * @param minLength          minimum length of the number
+     * @param maxLength          maximum length of the number
+     * @param format             number of digits in each group
+     * @param securityCodeLength length of the security code
+     * @param prefixes           IIN prefixes or ranges of prefixes
+     * @see #CardBrand(String, int, int, int[], String...)
+     */
+    public CardBrand(@NonNull String name, int minLength, int maxLength, @NonNull int[] format, int securityCodeLength, @NonNull String... prefixes) {
+        this(name, findCreditCardBrand(name), minLength, maxLength, format, securityCodeLength, prefixes);
+    }
+
+    CardBrand(@NonNull String name, @NonNull CreditCardBrand creditCardBrand, int minLength, int maxLength, @NonNull int[] format, int securityCodeLength, @NonNull String... prefixes) {
+        if (minLength < 0 || maxLength < minLength) {
+            throw new IllegalArgumentException("invalid length: " + minLength + "-" + maxLength);
+        }
+        if (securityCodeLength <= 0) {
+            throw new IllegalArgumentException("invalid security code length: " + securityCodeLength);
+        }
+        this.name = name;
+        this.creditCardBrand = creditCardBrand;
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.format = new GroupFormat(format);
+        this.securityCodeLength = securityCodeLength;
+        this.prefixes = prefixes.clone();
+        this.prefixTrie = new IinTrie.Builder<>(Boolean.FALSE).add(Boolean.TRUE, prefixes).build();
+    }
+
+    @NonNull
+    private static CreditCardBrand findCreditCardBrand(@NonNull String name) {
+        for (CreditCardBrand each : CreditCardBrand.values()) {
+            if (each.name().equals(name)) {
+                return each;
+            }
+        }
+        return CreditCardBrand.UNKNOWN;
+    }
+
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return the built-in brand of this definition.
+     *
+     * @return the built-in brand, or {@link CreditCardBrand#UNKNOWN} for custom brands
+     */
+    @NonNull
+    public CreditCardBrand getCreditCardBrand() {
+        return creditCardBrand;
+    }
+
+    public int getMinLength() {
+        return minLength;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    @NonNull
+    public int[] getFormat() {
+        return format.groups().clone();
+    }
+
+    public int getSeparatorCount() {
+        return format.separatorCount();
+    }
+
+    /**
+     * Return the length of the security code (CVC) printed on the card.
+     * {@link CreditCardBrand#UNKNOWN} returns the longest length of the built-in brands.
+     *
+     * @return the length of the security code
+     */
+    public int getSecurityCodeLength() {
+        return securityCodeLength;
+    }
+
+    @NonNull
+    public String[] getPrefixes() {
+        return prefixes.clone();
+    }
+
+    public boolean matches(@NonNull String number) {
+        return matches(number, 0, number.length());
+    }
+
+    /**
+     * Return whether the range of the text matches this brand.
+     * Non-digit characters such as separators are skipped.
+     *
+     * @param text  text containing number of credit card
+     * @param start start index of the number
+     * @param end   end index of the number
+     * @return true if the number matches this brand
+     */
+    public boolean matches(@NonNull CharSequence text, int start, int end) {
+        if (prefixes.length == 0) {
+            // IINを持たないブランド（UNKNOWN）は未入力の場合にだけ一致する
+            return !containsDigit(text, start, end);
+        }
+        return prefixTrie.find(text, start, end);
+    }
+
+    private static boolean containsDigit(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (IinTrie.isDigit(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isSeparatorPosition(int index) {
+        return format.isSeparatorPosition(index);
+    }
+
+    /**
+     * 書式（グループごとの桁数）を返す。呼び出し側で変更してはならない
+     */
+    @NonNull
+    int[] format() {
+        return format.groups();
+    }
+
+    /**
+     * セパレーター位置を事前計算した書式を返す
+     */
+    @NonNull
+    GroupFormat groupFormat() {
+        return format;
+    }
+
+    /**
+     * IINプレフィックスを返す。呼び出し側で変更してはならない
+     */
+    @NonNull
+    String[] prefixes() {
+        return prefixes;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
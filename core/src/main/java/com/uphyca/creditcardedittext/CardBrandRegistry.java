@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Registry of card brand definitions.
+ * <p>
+ * The registered definitions are compiled into an immutable lookup snapshot.
+ * Lookups read the current snapshot through an atomic reference and never lock,
+ * so the definitions can be replaced at runtime from any thread without stalling
+ * the per-keystroke lookups of {@link CreditCardNumberEditText}.
+ * <p>
+ * When several definitions match a number, the one registered first wins.
+ * The registry initially contains the built-in brands of {@link CreditCardBrand}.
+ */
+public final class CardBrandRegistry {
+
+    private static final CardBrandRegistry INSTANCE = new CardBrandRegistry();
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final Object writeLock = new Object();
+
+    private CardBrandRegistry() {
+        snapshot.set(new Snapshot(builtInBrands()));
+    }
+
+    /**
+     * Return the registry shared by all views.
+     *
+     * @return the registry
+     */
+    @NonNull
+    public static CardBrandRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Add a definition after the registered ones.
+     *
+     * @param brand added definition
+     */
+    public void register(@NonNull CardBrand brand) {
+        synchronized (writeLock) {
+            final ArrayList<CardBrand> brands = new ArrayList<>(snapshot.get().brands);
+            brands.add(brand);
+            snapshot.set(new Snapshot(brands));
+        }
+    }
+
+    /**
+     * Replace all definitions. The order of {@code brands} is the priority of lookups.
+     * <p>
+     * The new snapshot is compiled on the calling thread, so call this off the UI thread
+     * when the table is large.
+     *
+     * @param brands new definitions
+     */
+    public void setBrands(@NonNull Collection<CardBrand> brands) {
+        final Snapshot newSnapshot = new Snapshot(new ArrayList<>(brands));
+        synchronized (writeLock) {
+            snapshot.set(newSnapshot);
+        }
+    }
+
+    /**
+     * Restore the built-in definitions of {@link CreditCardBrand}.
+     */
+    public void reset() {
+        setBrands(builtInBrands());
+    }
+
+    /**
+     * Return the registered definitions in the order of priority.
+     *
+     * @return the registered definitions
+     */
+    @NonNull
+    public List<CardBrand> getBrands() {
+        return snapshot.get().brands;
+    }
+
+    /**
+     * Return the definition matching the number.
+     *
+     * @param number number of credit card (separator not included)
+     * @return the matched definition, or the definition of {@link CreditCardBrand#UNKNOWN}
+     */
+    @NonNull
+    public CardBrand getBrand(@NonNull CharSequence number) {
+        return getBrand(number, 0, number.length());
+    }
+
+    /**
+     * Return the definition matching the number in the range of the text.
+     * Non-digit characters such as separators are skipped.
+     *
+     * @param text  text containing number of credit card
+     * @param start start index of the number
+     * @param end   end index of the number
+     * @return the matched definition, or the definition of {@link CreditCardBrand#UNKNOWN}
+     */
+    @NonNull
+    public CardBrand getBrand(@NonNull CharSequence text, int start, int end) {
+        return snapshot.get().trie.find(text, start, end);
+    }
+
+    /**
+     * 現在のスナップショットを返す
+     */
+    @NonNull
+    Snapshot snapshot() {
+        return snapshot.get();
+    }
+
+    @NonNull
+    private static List<CardBrand> builtInBrands() {
+        final ArrayList<CardBrand> brands = new ArrayList<>();
+        for (CreditCardBrand each : CreditCardBrand.values()) {
+            if (each != CreditCardBrand.UNKNOWN) {
+                brands.add(each.getCardBrand());
+            }
+        }
+        return brands;
+    }
+
+    /**
+     * 登録済みのブランド定義をコンパイルした不変のスナップショット
+     */
+    static final class Snapshot {
+
+        final List<CardBrand> brands;
+        final IinTrie<CardBrand> trie;
+
+        Snapshot(@NonNull List<CardBrand> brands) {
+            this.brands = Collections.unmodifiableList(brands);
+            final IinTrie.Builder<CardBrand> builder = new IinTrie.Builder<>(CreditCardBrand.UNKNOWN.getCardBrand());
+            for (CardBrand each : brands) {
+                builder.add(each, each.prefixes());
+            }
+            this.trie = builder.build();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+/**
+ * brand of credit card
+ * <p>
+ * Ref: http://ja.wikipedia.org/wiki/ISO/IEC_7812
+ * Ref: http://www.cardservice.co.jp/service/creditcard/csc.html
+ * Ref: https://en.wikipedia.org/wiki/Bank_card_number
+ */
+public enum CreditCardBrand {
+
+    UNKNOWN(8, 19, new int[]{}, 4), // Defined 'ISO IEC/7812'
+    VISA(13, 16, new int[]{4, 4, 4, 4}, 3, "4"),
+    MASTER_CARD(16, 16, new int[]{4, 4, 4, 4}, 3, "51-55"),
+    AMERICAN_EXPRESS(15, 15, new int[]{4, 6, 5}, 4, "34", "37"),
+    JCB(16, 16, new int[]{4, 4, 4, 4}, 3, "35"),
+    DINERS_CLUB(14, 14, new int[]{4, 6, 4}, 3, "30", "36", "38", "39"),
+    DISCOVER(16, 16, new int[]{4, 4, 4, 4}, 3, "60");
+
+    private final CardBrand cardBrand;
+
+    CreditCardBrand(int minLength, int maxLength, int[] format, int securityCodeLength, String... prefixes) {
+        this.cardBrand = new CardBrand(name(), this, minLength, maxLength, format, securityCodeLength, prefixes);
+    }
+
+    /**
+     * Return the definition of this brand.
+     *
+     * @return the definition of this brand
+     */
+    @NonNull
+    public CardBrand getCardBrand() {
+        return cardBrand;
+    }
+
+    public int getMinLength() {
+        return cardBrand.getMinLength();
+    }
+
+    public int getMaxLength() {
+        return cardBrand.getMaxLength();
+    }
+
+    @NonNull
+    public int[] getFormat() {
+        return cardBrand.format();
+    }
+
+    public int getSeparatorCount() {
+        return cardBrand.getSeparatorCount();
+    }
+
+    public int getSecurityCodeLength() {
+        return cardBrand.getSecurityCodeLength();
+    }
+
+    public boolean matches(String number) {
+        return cardBrand.matches(number);
+    }
+
+    /**
+     * Return whether the range of the text matches this brand.
+     * Non-digit characters such as separators are skipped.
+     *
+     * @param text  text containing number of credit card
+     * @param start start index of the number
+     * @param end   end index of the number
+     * @return true if the number matches this brand
+     */
+    public boolean matches(@NonNull CharSequence text, int start, int end) {
+        return cardBrand.matches(text, start, end);
+    }
+
+    public boolean isSeparatorPosition(int index) {
+        return cardBrand.isSeparatorPosition(index);
+    }
+
+    /**
+     * Return the brand of the number.
+     * <p>
+     * The number is looked up in {@link CardBrandRegistry}. If the matched definition is
+     * not a built-in brand, {@link #UNKNOWN} is returned.
+     *
+     * @param number number of credit card (separator not included)
+     * @return the brand of the number
+     */
+    @NonNull
+    public static CreditCardBrand getBrand(@NonNull String number) {
+        return getBrand(number, 0, number.length());
+    }
+
+    /**
+     * Return the brand of the number in the range of the text.
+     * Non-digit characters such as separators are skipped, so formatted text can be passed as is.
+     *
+     * @param text  text containing number of credit card
+     * @param start start index of the number
+     * @param end   end index of the number
+     * @return the brand of the number
+     */
+    @NonNull
+    public static CreditCardBrand getBrand(@NonNull CharSequence text, int start, int end) {
+        return CardBrandRegistry.getInstance().getBrand(text, start, end).getCreditCardBrand();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Incremental brand detector.
+ * <p>
+ * Keeps the path walked through the IIN trie for the previous input and only
+ * re-walks the digits that changed. Since the brand depends only on the first
+ * few digits, appending or deleting digits after the IIN costs a bounded number
+ * of comparisons regardless of the length of the number.
+ * <p>
+ * When the definitions of {@link CardBrandRegistry} are replaced, the detector
+ * restarts from the new snapshot on the next update.
+ * <p>
+ * This class is not thread-safe. Each view owns its own instance.
+ */
+final class CreditCardBrandDetector {
+
+    private final CardBrandRegistry registry;
+    private CardBrandRegistry.Snapshot snapshot;
+    private IinTrie<CardBrand> trie;
+    /**
+     * 走査済みの数字。digits[i]を読んだ後のノードがnodes[i + 1]
+     */
+    private char[] digits;
+    private int[] nodes;
+    /**
+     * best[i]はnodes[1..i]のうち最も優先度の高い値を持つノード
+     */
+    private int[] best;
+    private int length;
+
+    CreditCardBrandDetector() {
+        this(CardBrandRegistry.getInstance());
+    }
+
+    CreditCardBrandDetector(@NonNull CardBrandRegistry registry) {
+        this.registry = registry;
+        setSnapshot(registry.snapshot());
+    }
+
+    private void setSnapshot(@NonNull CardBrandRegistry.Snapshot snapshot) {
+        this.snapshot = snapshot;
+        this.trie = snapshot.trie;
+        // トライ木の深さ＋1文字（一致しないことが確定した文字）までを保持すれば十分
+        final int capacity = trie.depth() + 1;
+        if (digits == null || digits.length != capacity) {
+            digits = new char[capacity];
+            nodes = new int[capacity + 1];
+            best = new int[capacity + 1];
+        }
+        reset();
+    }
+
+    /**
+     * 状態を初期化する
+     */
+    void reset() {
+        length = 0;
+        nodes[0] = IinTrie.ROOT;
+        best[0] = IinTrie.ROOT;
+    }
+
+    /**
+     * 数字列のブランドを返す。
+     * 前回の入力と共通するプレフィックスは再走査しない。
+     * 数字以外の文字（セパレーター）は読み飛ばす。
+     *
+     * @param s     数字列
+     * @param start 開始位置
+     * @param end   終了位置
+     * @return ブランド
+     */
+    @NonNull
+    CardBrand update(@NonNull CharSequence s, int start, int end) {
+        final CardBrandRegistry.Snapshot current = registry.snapshot();
+        if (current != snapshot) {
+            setSnapshot(current);
+        }
+        // 前回と異なる位置まで巻き戻す
+        int i = start;
+        int k = 0;
+        for (; i < end && k < length; i++) {
+            final char c = s.charAt(i);
+            if (!IinTrie.isDigit(c)) {
+                continue;
+            }
+            if (c != digits[k]) {
+                break;
+            }
+            k++;
+        }
+        length = k;
+
+        // 一致するプレフィックスが無くなるまで進める
+        for (; i < end && length < digits.length && (length == 0 || nodes[length] != IinTrie.NO_NODE); i++) {
+            final char c = s.charAt(i);
+            if (!IinTrie.isDigit(c)) {
+                continue;
+            }
+            final int node = trie.child(nodes[length], c);
+            digits[length] = c;
+            nodes[length + 1] = node;
+            best[length + 1] = node == IinTrie.NO_NODE ? best[length] : trie.better(best[length], node);
+            length++;
+        }
+        return trie.valueAt(best[length]);
+    }
+
+    /**
+     * 数字列のブランドを返す
+     *
+     * @param s 数字列
+     * @return ブランド
+     */
+    @NonNull
+    CardBrand update(@NonNull CharSequence s) {
+        return update(s, 0, s.length());
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+/**
+ * expiration date of credit card
+ * <p>
+ * Month and year of up to two digits each, including partial input such as "1" or "12/2", are
+ * packed into an int. {@link #valueOf} and {@link CreditCardDateFormatter#parse} return a shared
+ * instance for each of them, so comparing and hashing dates do not allocate.
+ */
+public final class CreditCardDate {
+
+    // 月と年それぞれ（0〜2桁）を表すコード：未入力は0、1桁は1+値、2桁は11+値
+    private static final int PART_COUNT = 1 + 10 + 100;
+    private static final int NO_CODE = -1;
+    private static final String[] PARTS = new String[PART_COUNT];
+    private static final CreditCardDate[] CACHE = new CreditCardDate[PART_COUNT * PART_COUNT];
+
+    static {
+        PARTS[0] = "";
+        for (int i = 0; i < 10; i++) {
+            PARTS[1 + i] = String.valueOf((char) ('0' + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            PARTS[11 + i] = new String(new char[]{(char) ('0' + i / 10), (char) ('0' + i % 10)});
+        }
+    }
+
+    private final String month;
+    private final String year;
+    // 月と年のコードを詰めた値（コードで表せない場合はNO_CODE）
+    private final int packed;
+    private String string;
+
+    public CreditCardDate(@NonNull String month, @NonNull String year) {
+        this(month, year, pack(code(month), code(year)));
+    }
+
+    private CreditCardDate(String month, String year, int packed) {
+        this.month = month;
+        this.year = year;
+        this.packed = packed;
+    }
+
+    /**
+     * Return an expiration date, sharing the instance for months and years of up to two digits.
+     *
+     * @param month month of up to two digits
+     * @param year  year of up to two digits
+     * @return expiration date
+     */
+    @NonNull
+    public static CreditCardDate valueOf(@NonNull String month, @NonNull String year) {
+        final int packed = pack(code(month), code(year));
+        return packed == NO_CODE ? new CreditCardDate(month, year, NO_CODE) : of(packed);
+    }
+
+    /**
+     * 月と年のコードに対応する共有インスタンスを返す
+     */
+    @NonNull
+    static CreditCardDate of(int monthCode, int yearCode) {
+        return of(pack(monthCode, yearCode));
+    }
+
+    private static CreditCardDate of(int packed) {
+        // 不変なので、複数のスレッドから同時に生成されてもどれを使っても同じ
+        CreditCardDate date = CACHE[packed];
+        if (date == null) {
+            date = new CreditCardDate(PARTS[packed / PART_COUNT], PARTS[packed % PART_COUNT], packed);
+            CACHE[packed] = date;
+        }
+        return date;
+    }
+
+    /**
+     * コードの末尾に数字を追加したコードを返す（2桁のコードには追加しない）
+     */
+    static int appendDigit(int code, char digit) {
+        if (code == 0) {
+            return 1 + (digit - '0');
+        }
+        if (code <= 10) {
+            return 11 + (code - 1) * 10 + (digit - '0');
+        }
+        return code;
+    }
+
+    private static int code(String part) {
+        final int length = part.length();
+        if (length > 2) {
+            return NO_CODE;
+        }
+        int code = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = part.charAt(i);
+            if (!IinTrie.isDigit(c)) {
+                return NO_CODE;
+            }
+            code = appendDigit(code, c);
+        }
+        return code;
+    }
+
+    private static int pack(int monthCode, int yearCode) {
+        if (monthCode == NO_CODE || yearCode == NO_CODE) {
+            return NO_CODE;
+        }
+        return monthCode * PART_COUNT + yearCode;
+    }
+
+    private static int value(int code) {
+        if (code == 0) {
+            return -1;
+        }
+        return code <= 10 ? code - 1 : code - 11;
+    }
+
+    @NonNull
+    public String getMonth() {
+        return month;
+    }
+
+    @NonNull
+    public String getYear() {
+        return year;
+    }
+
+    /**
+     * Return the month as an int.
+     *
+     * @return the month (a partial month such as "1" is returned as is), or -1 if not entered or not a number
+     */
+    public int getMonthValue() {
+        return packed == NO_CODE ? parseValue(month) : value(packed / PART_COUNT);
+    }
+
+    /**
+     * Return the two-digit year as an int.
+     *
+     * @return the year (a partial year such as "2" is returned as is), or -1 if not entered or not a number
+     */
+    public int getYearValue() {
+        return packed == NO_CODE ? parseValue(year) : value(packed % PART_COUNT);
+    }
+
+    /**
+     * Return whether both month and year have two digits.
+     *
+     * @return true if the date is fully entered
+     */
+    public boolean isComplete() {
+        return month.length() == 2 && year.length() == 2;
+    }
+
+    /**
+     * Validate the date against the current month with {@link CreditCardDateValidator#getDefault()}.
+     *
+     * @return the result of validation
+     */
+    @NonNull
+    public ExpiryStatus getExpiryStatus() {
+        return CreditCardDateValidator.getDefault().validate(this);
+    }
+
+    private static int parseValue(String s) {
+        if (s.length() == 0 || s.length() > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (!IinTrie.isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CreditCardDate that = (CreditCardDate) o;
+
+        if (packed != that.packed) return false;
+        if (packed != NO_CODE) return true;
+        if (!month.equals(that.month)) return false;
+        return year.equals(that.year);
+    }
+
+    @Override
+    public int hashCode() {
+        if (packed != NO_CODE) {
+            return packed;
+        }
+        int result = month.hashCode();
+        result = 31 * result + year.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        // 共有インスタンスでは一度だけ生成する
+        String s = string;
+        if (s == null) {
+            s = (month.length() == 0 ? "  " : month) + '/' + (year.length() == 0 ? "  " : year);
+            string = s;
+        }
+        return s;
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static com.uphyca.creditcardedittext.TextEdits.EMPTY;
+
+/**
+ * Formatting engine of expiration date (MM/yy), independent of Android.
+ * <p>
+ * {@link #reduce} applies an edit to a formatted text and returns the formatted text and
+ * the new selection, as {@code CreditCardDateEditText} does for user input.
+ * The view in the library module delegates each phase of an edit to {@link #filter} and {@link #format}.
+ * <p>
+ * The formatter reuses its buffers, so it is not thread-safe. Use one instance per field or per thread.
+ */
+public final class CreditCardDateFormatter implements EditFormatter {
+
+    /**
+     * separator between month and year
+     */
+    public static final char SEPARATOR = '/';
+
+    private static final int MAX_LENGTH = 4;
+    private static final int SEPARATOR_COUNT = 1;
+    static final GroupFormat FORMAT = new GroupFormat(new int[]{2, 2});
+
+    private final SplicedText splicedText = new SplicedText();
+    private final StringBuilder sourceBuf = new StringBuilder();
+    private final EditReducer reducer = new EditReducer(this);
+
+    /**
+     * Apply an edit to a text and format the result.
+     *
+     * @param text           current text
+     * @param selectionStart current selection start
+     * @param selectionEnd   current selection end
+     * @param start          start index of the replaced range
+     * @param end            end index of the replaced range
+     * @param replacement    replacement text
+     * @param out            receives the formatted text and the new selection
+     * @return {@code out}
+     */
+    @NonNull
+    public EditResult reduce(@NonNull CharSequence text, int selectionStart, int selectionEnd,
+                             int start, int end, @NonNull CharSequence replacement, @NonNull EditResult out) {
+        CharSequence source = replacement;
+        final CharSequence accepted = TextEdits.acceptedChars(source, 0, source.length(), SEPARATOR);
+        if (accepted != null) {
+            source = accepted;
+        }
+        return reducer.apply(text, selectionStart, selectionEnd, start, end, source, out);
+    }
+
+    /**
+     * Apply an edit to a text and format the result.
+     *
+     * @see #reduce(CharSequence, int, int, int, int, CharSequence, EditResult)
+     */
+    @NonNull
+    public EditResult reduce(@NonNull CharSequence text, int selectionStart, int selectionEnd,
+                             int start, int end, @NonNull CharSequence replacement) {
+        return reduce(text, selectionStart, selectionEnd, start, end, replacement, new EditResult());
+    }
+
+    /**
+     * Filter the replacement of an edit, with the same contract as {@code InputFilter#filter}.
+     * Separators out of the position of the format are removed, digits that make an invalid month
+     * are rejected, and the replacement is truncated to the maximum length.
+     * The source of a single character must be a digit or a separator. From a source of multiple characters,
+     * such as a paste, the characters other than digits and separators are removed.
+     *
+     * @return the replacement, or null to keep the original
+     */
+    @Nullable
+    @Override
+    public CharSequence filter(@NonNull CharSequence source, int start, int end, @NonNull CharSequence dest, int dstart, int dend) {
+        return filter(source, start, end, dest, dstart, dend, true);
+    }
+
+    /**
+     * Filter the replacement of an edit to a text holding only digits, with the same contract as
+     * {@code InputFilter#filter}. Digits that make an invalid month are rejected, and the replacement
+     * is truncated to the maximum length.
+     * The source of a single character must be a digit. From a source of multiple characters,
+     * the characters other than digits are removed.
+     *
+     * @return the replacement, or null to keep the original
+     */
+    @Nullable
+    @Override
+    public CharSequence filterDigits(@NonNull CharSequence source, int start, int end, @NonNull CharSequence dest, int dstart, int dend) {
+        return filter(source, start, end, dest, dstart, dend, false);
+    }
+
+    /**
+     * @param separators 文字列にセパレーターを含める場合はtrue、数字だけの場合はfalse
+     */
+    @Nullable
+    private CharSequence filter(CharSequence source, int start, int end, CharSequence dest, int dstart, int dend, boolean separators) {
+        // 貼り付けなど複数文字の入力から、受け付けない文字を除去する
+        if (end - start > 1) {
+            final CharSequence accepted = separators
+                    ? TextEdits.acceptedChars(source, start, end, SEPARATOR)
+                    : TextEdits.acceptedDigits(source, start, end);
+            if (accepted != null) {
+                source = accepted;
+                start = 0;
+                end = source.length();
+            }
+        }
+
+        //destにsourceをマージした文字列（文字列を生成せずに参照する）
+        final SplicedText tempRawText = splicedText.set(source, start, end, dest, dstart, dend);
+        final int tempLength = tempRawText.length();
+        final boolean validMonthStart = tempLength < 1 || isMonthStart(tempRawText.charAt(0));
+        final boolean validMonth = tempLength < 2 || isMonth(tempRawText.charAt(0), tempRawText.charAt(1));
+        splicedText.clear();
+
+        //有効期限の月が0から1で始まっていない場合は除去する
+        if (!validMonthStart) {
+            return EMPTY;
+        }
+
+        //書式のセパレーター位置以外に入力されたセパレーターを除去する
+        //有効期限の月が01〜12ではない場合は、先頭に入力された一文字だけを残して二文字目以降を除去する
+        final int keep = validMonth ? end - start : (dstart == 0 ? 1 : 0);
+        if (keep < end - start || containsMisplacedSeparator(source, start, end, dstart)) {
+            sourceBuf.setLength(0);
+            for (int i = start; i < end && sourceBuf.length() < keep; i++) {
+                final char c = source.charAt(i);
+                if (c != SEPARATOR || FORMAT.isSeparatorPosition(i - start + dstart)) {
+                    sourceBuf.append(c);
+                }
+            }
+            source = sourceBuf;
+            start = 0;
+            end = source.length();
+        }
+
+        // 入力文字数をチェック
+        final int maxLength = separators ? MAX_LENGTH + SEPARATOR_COUNT : MAX_LENGTH;
+        final CharSequence lengthOut = TextEdits.lengthFilter(maxLength, source, start, end, dest, dstart, dend);
+        return lengthOut == null ? source : lengthOut;
+    }
+
+    /**
+     * 月の一文字目（0か1）か否か
+     */
+    private static boolean isMonthStart(char c) {
+        return c == '0' || c == '1';
+    }
+
+    /**
+     * 月（01〜12）か否か
+     */
+    private static boolean isMonth(char first, char second) {
+        if (first == '0') {
+            return second >= '1' && second <= '9';
+        }
+        return first == '1' && second >= '0' && second <= '2';
+    }
+
+    /**
+     * 書式のセパレーター位置以外にセパレーターが入力されたか否か
+     */
+    private static boolean containsMisplacedSeparator(CharSequence source, int start, int end, int dstart) {
+        for (int i = start; i < end; i++) {
+            if (source.charAt(i) == SEPARATOR && !FORMAT.isSeparatorPosition(i - start + dstart)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Format the text after an edit.
+     *
+     * @param before               text before the edit
+     * @param beforeSelectionStart selection start before the edit
+     * @param beforeSelectionEnd   selection end before the edit
+     * @param after                text after the edit
+     * @param afterSelectionStart  selection start after the edit
+     * @param afterSelectionEnd    selection end after the edit
+     * @param out                  receives the formatted text and the new selection
+     * @return true if the formatted text differs from {@code after}
+     */
+    @Override
+    public boolean format(@NonNull CharSequence before, int beforeSelectionStart, int beforeSelectionEnd,
+                          @NonNull CharSequence after, int afterSelectionStart, int afterSelectionEnd,
+                          @NonNull EditResult out) {
+        out.brand = null;
+        return TextEdits.format(before, beforeSelectionStart, beforeSelectionEnd, after, afterSelectionStart, afterSelectionEnd,
+                FORMAT, SEPARATOR, MAX_LENGTH + SEPARATOR_COUNT, out);
+    }
+
+    /**
+     * 月と年を区切った有効期限（M/yy、MM/yyyy、MM-yyyyなど）を、月と年の二桁ずつの数字（MMyy）に変換する。
+     * 区切られていない場合は、六桁（MMyyyy）の年を下二桁にする以外は数字をそのまま返す。
+     * 自動入力など、整形されていない値をまとめて設定する場合に使う
+     *
+     * @param text 有効期限の文字列
+     * @return 数字だけの有効期限（月が不正な場合や桁が足りない場合もそのまま返す）
+     */
+    @NonNull
+    static String normalize(@NonNull CharSequence text) {
+        final StringBuilder month = new StringBuilder(2);
+        final StringBuilder year = new StringBuilder(4);
+        final int length = text.length();
+        boolean separated = false;
+        for (int i = 0; i < length; i++) {
+            final char c = TextEdits.normalizeDigit(text.charAt(i));
+            if (c == 0) {
+                // 月の後の最初の区切りで年に移る
+                separated |= month.length() > 0;
+                continue;
+            }
+            (separated ? year : month).append(c);
+        }
+        if (!separated) {
+            if (month.length() != MAX_LENGTH + 2) {
+                return month.toString();
+            }
+            // MMyyyy
+            year.append(month, 2, month.length());
+            month.setLength(2);
+        } else if (month.length() == 1) {
+            month.insert(0, '0');
+        }
+        if (year.length() > 2) {
+            year.delete(0, year.length() - 2);
+        }
+        return month.append(year).toString();
+    }
+
+    /**
+     * 月と年の値を、月と年の二桁ずつの数字（MMyy）に変換する。年は下二桁を使う
+     *
+     * @param month 月（1〜12）
+     * @param year  年（西暦または下二桁）
+     * @return 数字だけの有効期限
+     * @throws IllegalArgumentException 月か年が範囲外の場合
+     */
+    @NonNull
+    static String toDigits(int month, int year) {
+        if (month < 1 || month > 12) {
+            throw new IllegalArgumentException("month must be between 1 and 12: " + month);
+        }
+        if (year < 0) {
+            throw new IllegalArgumentException("year must not be negative: " + year);
+        }
+        final int yy = year % 100;
+        final char[] digits = {
+                (char) ('0' + month / 10), (char) ('0' + month % 10),
+                (char) ('0' + yy / 10), (char) ('0' + yy % 10)};
+        return new String(digits);
+    }
+
+    /**
+     * Parse a formatted text into an expiration date.
+     * A text of digits and separators returns a shared instance without allocation.
+     *
+     * @param text formatted text
+     * @return expiration date
+     */
+    @NonNull
+    public static CreditCardDate parse(@NonNull CharSequence text) {
+        // 月と年のコードを文字列を生成せずに求める
+        int monthCode = 0;
+        int yearCode = 0;
+        int count = 0;
+        final int length = text.length();
+        for (int i = 0; i < length && count < MAX_LENGTH; i++) {
+            final char c = text.charAt(i);
+            if (c == SEPARATOR) {
+                continue;
+            }
+            if (!IinTrie.isDigit(c)) {
+                // 数字以外を含む場合は文字列のまま保持する
+                return parseString(text);
+            }
+            if (count < 2) {
+                monthCode = CreditCardDate.appendDigit(monthCode, c);
+            } else {
+                yearCode = CreditCardDate.appendDigit(yearCode, c);
+            }
+            count++;
+        }
+        return CreditCardDate.of(monthCode, yearCode);
+    }
+
+    @NonNull
+    private static CreditCardDate parseString(CharSequence text) {
+        String date = TextEdits.removeSeparators(text, 0, text.length(), SEPARATOR);
+        String month = safeSubstring(date, 0, 2);
+        String year = safeSubstring(date, 2, 4);
+        return new CreditCardDate(month, year);
+    }
+
+    @NonNull
+    private static String safeSubstring(String s, int start, int end) {
+        if (start >= s.length()) {
+            return EMPTY;
+        }
+        if (end > s.length()) {
+            end = s.length();
+        }
+        return s.substring(start, end);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+import java.util.Calendar;
+
+/**
+ * Validates expiration dates against the current month.
+ * <p>
+ * A card is valid through the end of its expiration month. Two-digit years are read in the century
+ * starting {@link #setTwoDigitYearPivot(int) pivot} years before the current year, and dates more than
+ * {@link #setMaxYearsAhead(int) max years ahead} are rejected.
+ * <p>
+ * The current year and month are read from the {@link Clock} and cached for a minute, so validating
+ * on each keystroke does not create a {@link Calendar}. An instance can be shared between threads.
+ */
+public final class CreditCardDateValidator {
+
+    /**
+     * source of the current time
+     */
+    public interface Clock {
+
+        /**
+         * @return the current time in milliseconds since the epoch
+         */
+        long currentTimeMillis();
+    }
+
+    /**
+     * default number of years a card can be valid ahead of the current year
+     */
+    public static final int DEFAULT_MAX_YEARS_AHEAD = 20;
+
+    /**
+     * default number of years before the current year where the century of two-digit years starts
+     */
+    public static final int DEFAULT_TWO_DIGIT_YEAR_PIVOT = 50;
+
+    private static final long REFRESH_INTERVAL_MILLIS = 60 * 1000L;
+
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    private static final CreditCardDateValidator DEFAULT = new CreditCardDateValidator();
+
+    private final Clock clock;
+    private volatile int maxYearsAhead = DEFAULT_MAX_YEARS_AHEAD;
+    private volatile int twoDigitYearPivot = DEFAULT_TWO_DIGIT_YEAR_PIVOT;
+    private volatile CurrentMonth currentMonth;
+
+    public CreditCardDateValidator() {
+        this(SYSTEM_CLOCK);
+    }
+
+    public CreditCardDateValidator(@NonNull Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Return the validator with the system clock and the default settings.
+     *
+     * @return the shared validator
+     */
+    @NonNull
+    public static CreditCardDateValidator getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Set how many years ahead of the current year a card can be valid.
+     *
+     * @param years number of years
+     */
+    public void setMaxYearsAhead(int years) {
+        if (years < 0) {
+            throw new IllegalArgumentException("years must not be negative: " + years);
+        }
+        maxYearsAhead = years;
+    }
+
+    public int getMaxYearsAhead() {
+        return maxYearsAhead;
+    }
+
+    /**
+     * Set where the century of two-digit years starts, in years before the current year.
+     * With the default of 50 in 2026, "75" is read as 2075 and "76" as 1976.
+     *
+     * @param years number of years before the current year, 0 to 99
+     */
+    public void setTwoDigitYearPivot(int years) {
+        if (years < 0 || years > 99) {
+            throw new IllegalArgumentException("years must be in 0..99: " + years);
+        }
+        twoDigitYearPivot = years;
+    }
+
+    public int getTwoDigitYearPivot() {
+        return twoDigitYearPivot;
+    }
+
+    /**
+     * Validate an expiration date.
+     *
+     * @param date expiration date
+     * @return the result of validation
+     */
+    @NonNull
+    public ExpiryStatus validate(@NonNull CreditCardDate date) {
+        if (!date.isComplete()) {
+            return ExpiryStatus.INCOMPLETE;
+        }
+        final int month = date.getMonthValue();
+        final int year = date.getYearValue();
+        if (month < 1 || month > 12) {
+            return ExpiryStatus.INVALID_MONTH;
+        }
+        final CurrentMonth current = currentMonth();
+        final int fullYear = fullYear(current, year);
+        final int yearMonth = fullYear * 12 + (month - 1);
+        if (yearMonth < current.yearMonth) {
+            return ExpiryStatus.EXPIRED;
+        }
+        if (yearMonth > current.yearMonth + maxYearsAhead * 12) {
+            return ExpiryStatus.TOO_FAR_IN_FUTURE;
+        }
+        return ExpiryStatus.VALID;
+    }
+
+    /**
+     * 二桁の年を、ピボットから始まる100年の範囲で西暦に変換する
+     *
+     * @param year 二桁の年
+     * @return 西暦
+     */
+    int fullYear(int year) {
+        return fullYear(currentMonth(), year);
+    }
+
+    private int fullYear(CurrentMonth current, int year) {
+        // 二桁の年をピボットから始まる100年の範囲で解釈する
+        final int start = current.year - twoDigitYearPivot;
+        int fullYear = start - floorMod(start, 100) + year;
+        if (fullYear < start) {
+            fullYear += 100;
+        }
+        return fullYear;
+    }
+
+    /**
+     * 現在の年月を返す。前回の取得から1分以上経過した場合（または時計が戻った場合）にだけ取得し直す
+     */
+    private CurrentMonth currentMonth() {
+        final long now = clock.currentTimeMillis();
+        CurrentMonth current = currentMonth;
+        if (current == null || now - current.readAt >= REFRESH_INTERVAL_MILLIS || now < current.readAt) {
+            final Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(now);
+            current = new CurrentMonth(now, calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH));
+            currentMonth = current;
+        }
+        return current;
+    }
+
+    private static int floorMod(int x, int y) {
+        final int mod = x % y;
+        return mod < 0 ? mod + y : mod;
+    }
+
+    /**
+     * 取得時刻と現在の年月
+     */
+    private static final class CurrentMonth {
+
+        final long readAt;
+        final int year;
+        final int yearMonth;
+
+        CurrentMonth(long readAt, int year, int month) {
+            this.readAt = readAt;
+            this.year = year;
+            this.yearMonth = year * 12 + month;
+        }
+    }
+}
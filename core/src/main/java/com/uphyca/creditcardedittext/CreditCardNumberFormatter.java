@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Formatting engine of credit card number, independent of Android.
+ * <p>
+ * {@link #reduce} applies an edit to a formatted text and returns the formatted text,
+ * the new selection and the brand, as {@code CreditCardNumberEditText} does for user input.
+ * The view in the library module delegates each phase of an edit to {@link #filter} and {@link #format}.
+ * <p>
+ * The formatter keeps incremental state (the brand of the previous input) and reuses its
+ * buffers, so it is not thread-safe. Use one instance per field or per thread.
+ */
+public final class CreditCardNumberFormatter implements EditFormatter {
+
+    /**
+     * separator between groups of digits
+     */
+    public static final char SEPARATOR = ' ';
+
+    private final CreditCardBrandDetector brandDetector;
+    private final SplicedText splicedText = new SplicedText();
+    private final StringBuilder sourceBuf = new StringBuilder();
+    private final StringBuilder digitsBuf = new StringBuilder();
+    private final EditReducer reducer = new EditReducer(this);
+
+    public CreditCardNumberFormatter() {
+        this(CardBrandRegistry.getInstance());
+    }
+
+    public CreditCardNumberFormatter(@NonNull CardBrandRegistry registry) {
+        this.brandDetector = new CreditCardBrandDetector(registry);
+    }
+
+    /**
+     * Return the brand of the number. Separators are skipped.
+     *
+     * @param text  text containing number of credit card
+     * @param start start index of the number
+     * @param end   end index of the number
+     * @return the brand of the number
+     */
+    @NonNull
+    public CardBrand getBrand(@NonNull CharSequence text, int start, int end) {
+        return brandDetector.update(text, start, end);
+    }
+
+    /**
+     * Apply an edit to a text and format the result.
+     *
+     * @param text           current text
+     * @param selectionStart current selection start
+     * @param selectionEnd   current selection end
+     * @param start          start index of the replaced range
+     * @param end            end index of the replaced range
+     * @param replacement    replacement text
+     * @param out            receives the formatted text, the new selection and the brand
+     * @return {@code out}
+     */
+    @NonNull
+    public EditResult reduce(@NonNull CharSequence text, int selectionStart, int selectionEnd,
+                             int start, int end, @NonNull CharSequence replacement, @NonNull EditResult out) {
+        CharSequence source = replacement;
+        // 複数文字の入力はfilterで正規化する
+        final CharSequence accepted = source.length() > 1 ? null : TextEdits.acceptedChars(source, 0, source.length(), SEPARATOR);
+        if (accepted != null) {
+            source = accepted;
+        }
+        return reducer.apply(text, selectionStart, selectionEnd, start, end, source, out);
+    }
+
+    /**
+     * Apply an edit to a text and format the result.
+     *
+     * @see #reduce(CharSequence, int, int, int, int, CharSequence, EditResult)
+     */
+    @NonNull
+    public EditResult reduce(@NonNull CharSequence text, int selectionStart, int selectionEnd,
+                             int start, int end, @NonNull CharSequence replacement) {
+        return reduce(text, selectionStart, selectionEnd, start, end, replacement, new EditResult());
+    }
+
+    /**
+     * Filter the replacement of an edit, with the same contract as {@code InputFilter#filter}.
+     * Separators out of the positions of the brand's format are removed, and the replacement
+     * is truncated to the maximum length of the brand.
+     * The source of a single character must be a digit or a separator. A source of multiple characters,
+     * such as a paste, may contain any characters: full-width digits are converted, the other characters
+     * are removed, and the separators are inserted at the positions of the brand's format.
+     *
+     * @return the replacement, or null to keep the original
+     */
+    @Nullable
+    @Override
+    public CharSequence filter(@NonNull CharSequence source, int start, int end, @NonNull CharSequence dest, int dstart, int dend) {
+        if (end - start > 1) {
+            return filterBulk(source, start, end, dest, dstart, dend, true);
+        }
+        //destにsourceをマージした文字列（文字列を生成せずに参照する）
+        final SplicedText tempRawText = splicedText.set(source, start, end, dest, dstart, dend);
+        final CardBrand tempBrand = brandDetector.update(tempRawText, 0, tempRawText.length());
+        splicedText.clear();
+
+        //ブランドごとの書式のセパレーター位置以外に入力されたセパレーターを除去する
+        if (containsMisplacedSeparator(source, start, end, dstart, tempBrand)) {
+            sourceBuf.setLength(0);
+            for (int i = start; i < end; i++) {
+                final char c = source.charAt(i);
+                if (c != SEPARATOR || tempBrand.isSeparatorPosition(i - start + dstart)) {
+                    sourceBuf.append(c);
+                }
+            }
+            source = sourceBuf;
+            start = 0;
+            end = source.length();
+        }
+
+        // 入力文字数をチェック
+        final int maxLength = tempBrand.getMaxLength() + tempBrand.getSeparatorCount();
+        final CharSequence lengthOut = TextEdits.lengthFilter(maxLength, source, start, end, dest, dstart, dend);
+        return lengthOut == null ? source : lengthOut;
+    }
+
+    /**
+     * Filter the replacement of an edit to a text holding only digits, with the same contract as
+     * {@code InputFilter#filter}. The replacement is truncated to the maximum length of the brand.
+     * The source of a single character must be a digit. From a source of multiple characters,
+     * full-width digits are converted and the other characters are removed.
+     *
+     * @return the replacement, or null to keep the original
+     */
+    @Nullable
+    @Override
+    public CharSequence filterDigits(@NonNull CharSequence source, int start, int end, @NonNull CharSequence dest, int dstart, int dend) {
+        if (end - start > 1) {
+            return filterBulk(source, start, end, dest, dstart, dend, false);
+        }
+        //destにsourceをマージした文字列（文字列を生成せずに参照する）
+        final SplicedText tempRawText = splicedText.set(source, start, end, dest, dstart, dend);
+        final CardBrand tempBrand = brandDetector.update(tempRawText, 0, tempRawText.length());
+        splicedText.clear();
+
+        // 入力文字数をチェック（セパレーターは含まない）
+        return TextEdits.lengthFilter(tempBrand.getMaxLength(), source, start, end, dest, dstart, dend);
+    }
+
+    /**
+     * Format the text after an edit.
+     *
+     * @param before               text before the edit
+     * @param beforeSelectionStart selection start before the edit
+     * @param beforeSelectionEnd   selection end before the edit
+     * @param after                text after the edit
+     * @param afterSelectionStart  selection start after the edit
+     * @param afterSelectionEnd    selection end after the edit
+     * @param out                  receives the formatted text, the new selection and the brand
+     * @return true if the formatted text differs from {@code after}
+     */
+    @Override
+    public boolean format(@NonNull CharSequence before, int beforeSelectionStart, int beforeSelectionEnd,
+                          @NonNull CharSequence after, int afterSelectionStart, int afterSelectionEnd,
+                          @NonNull EditResult out) {
+        // セパレーターは読み飛ばされるので、編集後の文字列から直接ブランドを判定する
+        final CardBrand brand = brandDetector.update(after, 0, after.length());
+        out.brand = brand;
+        return TextEdits.format(before, beforeSelectionStart, beforeSelectionEnd, after, afterSelectionStart, afterSelectionEnd,
+                brand.groupFormat(), SEPARATOR, brand.getMaxLength() + brand.getSeparatorCount(), out);
+    }
+
+    /**
+     * Return the number without separators.
+     *
+     * @param text  formatted text
+     * @param start start index
+     * @param end   end index
+     * @return the number (separator not included)
+     */
+    @NonNull
+    public static String removeSeparators(@NonNull CharSequence text, int start, int end) {
+        return TextEdits.removeSeparators(text, start, end, SEPARATOR);
+    }
+
+    /**
+     * 複数文字の入力（貼り付け）を正規化する。
+     * 数字（全角数字を含む）以外を除去してブランドの最大桁数に切り詰め、書式に従ってセパレーターを挿入し直す。
+     * 整形済みの文字列をそのまま入力した場合は同じ文字列を返す。
+     *
+     * @param separators 書式に従ってセパレーターを挿入する場合はtrue
+     */
+    private CharSequence filterBulk(CharSequence source, int start, int end, CharSequence dest, int dstart, int dend, boolean separators) {
+        final StringBuilder digits = digitsBuf;
+        TextEdits.normalizeDigits(source, start, end, digits);
+
+        //destに数字をマージした文字列（文字列を生成せずに参照する）
+        final SplicedText tempRawText = splicedText.set(digits, 0, digits.length(), dest, dstart, dend);
+        final CardBrand tempBrand = brandDetector.update(tempRawText, 0, tempRawText.length());
+        splicedText.clear();
+
+        return TextEdits.filterBulk(digits, dest, dstart, dend,
+                tempBrand.groupFormat(), SEPARATOR, tempBrand.getMaxLength(), separators, sourceBuf);
+    }
+
+    /**
+     * ブランドの書式のセパレーター位置以外にセパレーターが入力されたか否か
+     */
+    private static boolean containsMisplacedSeparator(CharSequence source, int start, int end, int dstart, CardBrand brand) {
+        for (int i = start; i < end; i++) {
+            if (source.charAt(i) == SEPARATOR && !brand.isSeparatorPosition(i - start + dstart)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static com.uphyca.creditcardedittext.TextEdits.EMPTY;
+
+/**
+ * Formatting engine of digits according to a {@link DigitsTemplate}, independent of Android.
+ * <p>
+ * {@link #reduce} applies an edit to a formatted text and returns the formatted text and
+ * the new selection, as {@code FormattedDigitsEditText} does for user input.
+ * <p>
+ * The formatter reuses its buffers, so it is not thread-safe. Use one instance per field or per thread.
+ */
+public final class DigitsFormatter implements EditFormatter {
+
+    private final DigitsTemplate template;
+    private final StringBuilder sourceBuf = new StringBuilder();
+    private final StringBuilder digitsBuf = new StringBuilder();
+    private final EditReducer reducer = new EditReducer(this);
+
+    public DigitsFormatter(@NonNull DigitsTemplate template) {
+        this.template = template;
+    }
+
+    @NonNull
+    public DigitsTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * Apply an edit to a text and format the result.
+     *
+     * @param text           current text
+     * @param selectionStart current selection start
+     * @param selectionEnd   current selection end
+     * @param start          start index of the replaced range
+     * @param end            end index of the replaced range
+     * @param replacement    replacement text
+     * @param out            receives the formatted text and the new selection
+     * @return {@code out}
+     */
+    @NonNull
+    public EditResult reduce(@NonNull CharSequence text, int selectionStart, int selectionEnd,
+                             int start, int end, @NonNull CharSequence replacement, @NonNull EditResult out) {
+        CharSequence source = replacement;
+        // 複数文字の入力はfilterで正規化する
+        final CharSequence accepted = source.length() > 1 ? null : TextEdits.acceptedChars(source, 0, source.length(), template.getSeparator());
+        if (accepted != null) {
+            source = accepted;
+        }
+        return reducer.apply(text, selectionStart, selectionEnd, start, end, source, out);
+    }
+
+    /**
+     * Apply an edit to a text and format the result.
+     *
+     * @see #reduce(CharSequence, int, int, int, int, CharSequence, EditResult)
+     */
+    @NonNull
+    public EditResult reduce(@NonNull CharSequence text, int selectionStart, int selectionEnd,
+                             int start, int end, @NonNull CharSequence replacement) {
+        return reduce(text, selectionStart, selectionEnd, start, end, replacement, new EditResult());
+    }
+
+    /**
+     * Filter the replacement of an edit, with the same contract as {@code InputFilter#filter}.
+     * Separators out of the positions of the template and digits not allowed at their positions
+     * are removed, and the replacement is truncated to the maximum length.
+     * The source of a single character must be a digit or a separator. A source of multiple characters,
+     * such as a paste, may contain any characters: full-width digits are converted, the other characters
+     * are removed, and the separators are inserted at the positions of the template.
+     *
+     * @return the replacement, or null to keep the original
+     */
+    @Nullable
+    @Override
+    public CharSequence filter(@NonNull CharSequence source, int start, int end, @NonNull CharSequence dest, int dstart, int dend) {
+        return filter(source, start, end, dest, dstart, dend, true);
+    }
+
+    /**
+     * Filter the replacement of an edit to a text holding only digits, with the same contract as
+     * {@code InputFilter#filter}. Digits not allowed at their positions are removed, and the replacement
+     * is truncated to the maximum length.
+     * The source of a single character must be a digit. From a source of multiple characters,
+     * full-width digits are converted and the other characters are removed.
+     *
+     * @return the replacement, or null to keep the original
+     */
+    @Nullable
+    @Override
+    public CharSequence filterDigits(@NonNull CharSequence source, int start, int end, @NonNull CharSequence dest, int dstart, int dend) {
+        return filter(source, start, end, dest, dstart, dend, false);
+    }
+
+    /**
+     * @param separators 文字列にセパレーターを含める場合はtrue、数字だけの場合はfalse
+     */
+    @Nullable
+    private CharSequence filter(CharSequence source, int start, int end, CharSequence dest, int dstart, int dend, boolean separators) {
+        if (end - start > 1) {
+            return filterBulk(source, start, end, dest, dstart, dend, separators);
+        }
+        if (end > start) {
+            final char c = source.charAt(start);
+            if (c == template.getSeparator()) {
+                //書式のセパレーター位置以外に入力されたセパレーターを除去する
+                if (!separators || !template.isSeparatorPosition(dstart)) {
+                    return EMPTY;
+                }
+            } else if (!template.isAllowed(TextEdits.countDigits(dest, 0, dstart), c)) {
+                //入力位置で受け付けない数字を除去する
+                return EMPTY;
+            }
+        }
+
+        // 入力文字数をチェック
+        final int maxLength = separators ? template.displayMaxLength() : template.getMaxLength();
+        return TextEdits.lengthFilter(maxLength, source, start, end, dest, dstart, dend);
+    }
+
+    /**
+     * 複数文字の入力（貼り付け）を正規化する。
+     * 数字（全角数字を含む）以外を除去して最大桁数に切り詰め、書式に従ってセパレーターを挿入し直す。
+     * 入力位置で受け付けない数字があれば、それ以降を除去する。
+     *
+     * @param separators 書式に従ってセパレーターを挿入する場合はtrue
+     */
+    private CharSequence filterBulk(CharSequence source, int start, int end, CharSequence dest, int dstart, int dend, boolean separators) {
+        final StringBuilder digits = digitsBuf;
+        TextEdits.normalizeDigits(source, start, end, digits);
+        // 入力位置で受け付けない最初の数字から後ろを除去する
+        final int index = TextEdits.countDigits(dest, 0, dstart);
+        final int length = digits.length();
+        for (int i = 0; i < length; i++) {
+            if (!template.isAllowed(index + i, digits.charAt(i))) {
+                digits.setLength(i);
+                break;
+            }
+        }
+        return TextEdits.filterBulk(digits, dest, dstart, dend,
+                template.groupFormat(), template.getSeparator(), template.getMaxLength(), separators, sourceBuf);
+    }
+
+    /**
+     * Format the text after an edit.
+     *
+     * @param before               text before the edit
+     * @param beforeSelectionStart selection start before the edit
+     * @param beforeSelectionEnd   selection end before the edit
+     * @param after                text after the edit
+     * @param afterSelectionStart  selection start after the edit
+     * @param afterSelectionEnd    selection end after the edit
+     * @param out                  receives the formatted text and the new selection
+     * @return true if the formatted text differs from {@code after}
+     */
+    @Override
+    public boolean format(@NonNull CharSequence before, int beforeSelectionStart, int beforeSelectionEnd,
+                          @NonNull CharSequence after, int afterSelectionStart, int afterSelectionEnd,
+                          @NonNull EditResult out) {
+        out.brand = null;
+        return TextEdits.format(before, beforeSelectionStart, beforeSelectionEnd, after, afterSelectionStart, afterSelectionEnd,
+                template.groupFormat(), template.getSeparator(), template.displayMaxLength(), out);
+    }
+
+    /**
+     * Return the digits without separators.
+     *
+     * @param text  formatted text
+     * @param start start index
+     * @param end   end index
+     * @return the digits (separator not included)
+     */
+    @NonNull
+    public String removeSeparators(@NonNull CharSequence text, int start, int end) {
+        return TextEdits.removeSeparators(text, start, end, template.getSeparator());
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Compiled format of a field of digits, such as a security code, a postal code or an account number.
+ * <p>
+ * A template consists of the maximum number of digits, the grouping of digits, the separator
+ * between groups and the digits allowed at each position. The positions of separators and
+ * the allowed digits are compiled into tables when the template is created, so each lookup is O(1).
+ * Instances are immutable and shared between fields.
+ *
+ * @see DigitsFormatter
+ */
+public final class DigitsTemplate {
+
+    /**
+     * digits without limit of length, grouping and constraints
+     */
+    public static final DigitsTemplate DIGITS = new DigitsTemplate(Integer.MAX_VALUE, new int[0], ' ');
+
+    private static final int ALL_DIGITS = (1 << 10) - 1;
+
+    private final int maxLength;
+    private final GroupFormat format;
+    private final char separator;
+    private final int separatorCount;
+    /**
+     * allowedDigits[i]はi桁目に入力できる数字のビットマスク（これより後の桁は全ての数字を入力できる）
+     */
+    private final int[] allowedDigits;
+
+    /**
+     * Create a template of digits.
+     * <p>
+     * A separator follows each group once the digits go beyond it. {@code allowedDigits[i]} lists
+     * the digits allowed at position {@code i}, such as "01" for the first digit of a month.
+     * A null or empty string, and positions beyond the array, allow every digit.
+     *
+     * @param maxLength     maximum number of digits
+     * @param format        number of digits in each group
+     * @param separator     separator between groups
+     * @param allowedDigits digits allowed at each position
+     */
+    public DigitsTemplate(int maxLength, @NonNull int[] format, char separator, @NonNull String... allowedDigits) {
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("invalid length: " + maxLength);
+        }
+        if (IinTrie.isDigit(separator)) {
+            throw new IllegalArgumentException("separator must not be a digit: " + separator);
+        }
+        int digits = 0;
+        int separatorCount = 0;
+        for (int group : format) {
+            if (group <= 0) {
+                throw new IllegalArgumentException("invalid group: " + group);
+            }
+            digits += group;
+            // 最大桁数まで入力した場合に挿入されるセパレーターを数える
+            if (digits < maxLength) {
+                separatorCount++;
+            }
+        }
+        this.maxLength = maxLength;
+        this.format = new GroupFormat(format);
+        this.separator = separator;
+        this.separatorCount = separatorCount;
+        this.allowedDigits = new int[Math.min(allowedDigits.length, maxLength)];
+        for (int i = 0; i < this.allowedDigits.length; i++) {
+            this.allowedDigits[i] = toMask(allowedDigits[i]);
+        }
+    }
+
+    private static int toMask(@Nullable String digits) {
+        if (digits == null || digits.length() == 0) {
+            return ALL_DIGITS;
+        }
+        int mask = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            final char c = digits.charAt(i);
+            if (!IinTrie.isDigit(c)) {
+                throw new IllegalArgumentException("invalid digits: " + digits);
+            }
+            mask |= 1 << (c - '0');
+        }
+        return mask;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    @NonNull
+    public int[] getFormat() {
+        return format.groups().clone();
+    }
+
+    public char getSeparator() {
+        return separator;
+    }
+
+    /**
+     * Return the number of separators when all the digits are entered.
+     *
+     * @return the number of separators
+     */
+    public int getSeparatorCount() {
+        return separatorCount;
+    }
+
+    /**
+     * Return whether the digit is allowed at the position.
+     *
+     * @param index position of the digit (separators not included)
+     * @param c     character to test
+     * @return true if {@code c} is a digit allowed at {@code index}
+     */
+    public boolean isAllowed(int index, char c) {
+        if (!IinTrie.isDigit(c) || index < 0 || index >= maxLength) {
+            return false;
+        }
+        return index >= allowedDigits.length || (allowedDigits[index] & (1 << (c - '0'))) != 0;
+    }
+
+    /**
+     * Return whether the index of the formatted text is the position of a separator.
+     *
+     * @param index index of the formatted text
+     * @return true if a separator is at the index
+     */
+    public boolean isSeparatorPosition(int index) {
+        return format.isSeparatorPosition(index);
+    }
+
+    @NonNull
+    GroupFormat groupFormat() {
+        return format;
+    }
+
+    /**
+     * セパレーターを含む最大長を返す
+     */
+    int displayMaxLength() {
+        return maxLength > Integer.MAX_VALUE - separatorCount ? Integer.MAX_VALUE : maxLength + separatorCount;
+    }
+}
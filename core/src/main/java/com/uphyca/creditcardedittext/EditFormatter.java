@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * 入力欄の編集を整形する処理（InputFilterとTextWatcherの各段階）
+ * <p>
+ * 一文字の置換文字列は数字かセパレーター（{@link #filterDigits}では数字）だけで構成される。
+ * 貼り付けなど複数文字の置換文字列は任意の文字を含んでよく、受け付けない文字は各フィルターが除去する。
+ */
+interface EditFormatter {
+
+    /**
+     * {@code InputFilter#filter}と同じ規約で置換文字列を検査する
+     *
+     * @return 置換文字列、元の置換文字列のままでよい場合はnull
+     */
+    @Nullable
+    CharSequence filter(@NonNull CharSequence source, int start, int end, @NonNull CharSequence dest, int dstart, int dend);
+
+    /**
+     * 数字だけを保持する文字列への置換文字列を、{@code InputFilter#filter}と同じ規約で検査する
+     *
+     * @return 置換文字列、元の置換文字列のままでよい場合はnull
+     */
+    @Nullable
+    CharSequence filterDigits(@NonNull CharSequence source, int start, int end, @NonNull CharSequence dest, int dstart, int dend);
+
+    /**
+     * 編集後の文字列を整形する
+     *
+     * @return 整形後の文字列が編集後の文字列と異なる場合はtrue
+     */
+    boolean format(@NonNull CharSequence before, int beforeSelectionStart, int beforeSelectionEnd,
+                   @NonNull CharSequence after, int afterSelectionStart, int afterSelectionEnd,
+                   @NonNull EditResult out);
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Applies an edit through the filter and format phases of an {@link EditFormatter}.
+ * <p>
+ * When the view reformats the text, it replaces the whole text and the replacement goes through
+ * the filters and the watcher again. This class reproduces those passes without an Editable,
+ * so callers get the same text and selection as the view.
+ */
+final class EditReducer {
+
+    private final EditFormatter formatter;
+    private final StringBuilder afterText = new StringBuilder();
+    private final TextBuffer pendingText = new TextBuffer();
+    private final TextBuffer pendingReplacement = new TextBuffer();
+
+    EditReducer(@NonNull EditFormatter formatter) {
+        this.formatter = formatter;
+    }
+
+    /**
+     * 置換をフィルターに通して反映し、整形する
+     *
+     * @param text           現在の文字列
+     * @param selectionStart 現在のカーソル開始位置
+     * @param selectionEnd   現在のカーソル終了位置
+     * @param start          置換範囲の開始位置
+     * @param end            置換範囲の終了位置
+     * @param replacement    置換文字列（受け付ける文字だけで構成される）
+     * @param out            整形後の文字列とカーソル位置
+     * @return {@code out}
+     */
+    @NonNull
+    EditResult apply(@NonNull CharSequence text, int selectionStart, int selectionEnd,
+                     int start, int end, @NonNull CharSequence replacement, @NonNull EditResult out) {
+        CharSequence source = formatter.filter(replacement, 0, replacement.length(), text, start, end);
+        if (source == null) {
+            source = replacement;
+        }
+
+        afterText.setLength(0);
+        afterText.append(text, 0, start).append(source).append(text, end, text.length());
+        final int newLength = source.length();
+        format(text, selectionStart, selectionEnd, afterText,
+                TextEdits.moveSelection(selectionStart, start, end, newLength),
+                TextEdits.moveSelection(selectionEnd, start, end, newLength),
+                out);
+        return out;
+    }
+
+    /**
+     * 編集後の文字列を整形する。
+     * 整形した場合は、ビューと同様に整形後の文字列での置換もフィルターと整形に通してから
+     * 最初の整形で求めたカーソル位置を設定する。
+     *
+     * @return 整形した場合はtrue
+     */
+    boolean format(@NonNull CharSequence before, int beforeSelectionStart, int beforeSelectionEnd,
+                   @NonNull CharSequence after, int afterSelectionStart, int afterSelectionEnd,
+                   @NonNull EditResult out) {
+        if (!formatter.format(before, beforeSelectionStart, beforeSelectionEnd, after, afterSelectionStart, afterSelectionEnd, out)) {
+            return false;
+        }
+        final int selection = out.selectionStart;
+
+        CharSequence current = after;
+        int currentSelectionStart = afterSelectionStart;
+        int currentSelectionEnd = afterSelectionEnd;
+        boolean changed = true;
+        while (changed) {
+            final TextBuffer text = pendingText.set(current);
+            final TextBuffer replacement = pendingReplacement.set(out.text);
+            CharSequence filtered = formatter.filter(replacement, 0, replacement.length(), text, 0, text.length());
+            if (filtered == null) {
+                filtered = replacement;
+            }
+            final int newLength = filtered.length();
+            final int nextSelectionStart = TextEdits.moveSelection(currentSelectionStart, 0, text.length(), newLength);
+            final int nextSelectionEnd = TextEdits.moveSelection(currentSelectionEnd, 0, text.length(), newLength);
+            changed = formatter.format(text, currentSelectionStart, currentSelectionEnd,
+                    filtered, nextSelectionStart, nextSelectionEnd, out);
+            current = filtered;
+            currentSelectionStart = nextSelectionStart;
+            currentSelectionEnd = nextSelectionEnd;
+        }
+
+        final int newSelection = Math.min(selection, out.text.length());
+        out.setSelection(newSelection, newSelection);
+        return true;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * result of formatting an edit: the formatted text, the new selection and the brand
+ * <p>
+ * An instance can be passed to the formatters repeatedly to avoid allocation on each edit.
+ */
+public final class EditResult {
+
+    final TextBuffer text = new TextBuffer();
+    int selectionStart;
+    int selectionEnd;
+    CardBrand brand;
+
+    /**
+     * Return the formatted text.
+     *
+     * @return the formatted text
+     */
+    @NonNull
+    public String getText() {
+        return text.toString();
+    }
+
+    public int getSelectionStart() {
+        return selectionStart;
+    }
+
+    public int getSelectionEnd() {
+        return selectionEnd;
+    }
+
+    /**
+     * Return the brand of the formatted number.
+     *
+     * @return the brand of the number, or null for the other fields
+     */
+    @Nullable
+    public CardBrand getBrand() {
+        return brand;
+    }
+
+    void setSelection(int start, int end) {
+        selectionStart = start;
+        selectionEnd = end;
+    }
+
+    @Override
+    public String toString() {
+        return "EditResult{text=" + text + ", selection=" + selectionStart + "-" + selectionEnd + ", brand=" + brand + "}";
+    }
+}
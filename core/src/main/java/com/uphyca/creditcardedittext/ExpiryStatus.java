@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+/**
+ * result of validating an expiration date
+ *
+ * @see CreditCardDateValidator
+ */
+public enum ExpiryStatus {
+
+    /**
+     * month or year is not fully entered
+     */
+    INCOMPLETE,
+
+    /**
+     * month is not in 01-12
+     */
+    INVALID_MONTH,
+
+    /**
+     * the card expired before the current month
+     */
+    EXPIRED,
+
+    /**
+     * the date is beyond the validity window
+     */
+    TOO_FAR_IN_FUTURE,
+
+    /**
+     * the card is valid through the date
+     */
+    VALID
+}
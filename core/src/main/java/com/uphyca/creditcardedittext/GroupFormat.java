@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Compiled grouping of digits, such as {4, 4, 4, 4} or {2, 2}.
+ * <p>
+ * A separator follows each group once the digits go beyond it. The positions of
+ * separators and the mapping from digit index to display index are precomputed,
+ * so both lookups are O(1). Instances are immutable and shared between views.
+ */
+final class GroupFormat {
+
+    static final GroupFormat NONE = new GroupFormat(new int[0]);
+
+    private final int[] groups;
+    /**
+     * separatorPositions[i]は表示上のi文字目がセパレーターか否か
+     */
+    private final boolean[] separatorPositions;
+    /**
+     * separatorsUpTo[p]は桁数p以下で区切られるグループの数
+     */
+    private final int[] separatorsUpTo;
+
+    GroupFormat(@NonNull int[] groups) {
+        this.groups = groups.clone();
+        int digits = 0;
+        for (int group : groups) {
+            digits += group;
+        }
+        this.separatorPositions = new boolean[digits + groups.length];
+        this.separatorsUpTo = new int[digits + 1];
+        int digitIndex = 0;
+        for (int k = 0; k < groups.length; k++) {
+            digitIndex += groups[k];
+            separatorPositions[digitIndex + k] = true;
+            separatorsUpTo[digitIndex]++;
+        }
+        for (int p = 1; p <= digits; p++) {
+            separatorsUpTo[p] += separatorsUpTo[p - 1];
+        }
+    }
+
+    /**
+     * グループごとの桁数を返す。呼び出し側で変更してはならない
+     */
+    @NonNull
+    int[] groups() {
+        return groups;
+    }
+
+    /**
+     * 全ての桁を入力した場合のセパレーターの数を返す
+     */
+    int separatorCount() {
+        return Math.max(0, groups.length - 1);
+    }
+
+    /**
+     * 表示上の位置がセパレーターの位置か否かを返す
+     *
+     * @param index 表示上の位置
+     * @return セパレーターの位置の場合はtrue
+     */
+    boolean isSeparatorPosition(int index) {
+        return index >= 0 && index < separatorPositions.length && separatorPositions[index];
+    }
+
+    /**
+     * 桁の位置を、セパレーター挿入後の表示上の位置に変換する
+     *
+     * @param digitIndex 桁の位置（セパレーターを含まないカーソル位置）
+     * @param digitCount 全体の桁数
+     * @return 表示上の位置
+     */
+    int toDisplayIndex(int digitIndex, int digitCount) {
+        // 末尾の桁の直後にはセパレーターを挿入しない
+        final int p = digitIndex < digitCount ? digitIndex : digitCount - 1;
+        return digitIndex + separatorsUpTo(p);
+    }
+
+    private int separatorsUpTo(int p) {
+        if (p < 0) {
+            return 0;
+        }
+        return p < separatorsUpTo.length ? separatorsUpTo[p] : groups.length;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+
+/**
+ * Digit-indexed prefix trie of IIN (Issuer Identification Number) prefixes.
+ * <p>
+ * The trie is immutable once built, so lookups are safe from any thread.
+ * A lookup walks at most one node per digit and allocates nothing.
+ * When several prefixes match a number, the value registered first wins,
+ * which keeps the same semantics as scanning the definitions in order.
+ * Non-digit characters such as separators are skipped during lookups.
+ *
+ * @param <T> type of the value associated with prefixes
+ */
+final class IinTrie<T> {
+
+    static final int ROOT = 0;
+    static final int NO_NODE = 0;
+
+    private static final int RADIX = 10;
+    private static final int NO_RANK = Integer.MAX_VALUE;
+
+    /**
+     * children[node * RADIX + digit] is the index of the child node, or 0 if absent.
+     * The root is node 0 and is never a child, so 0 can be used as the terminator
+     * ({@link #NO_NODE}). The root never has a value.
+     */
+    private final int[] children;
+    private final int[] ranks;
+    private final Object[] values;
+    private final T defaultValue;
+    private final int depth;
+
+    private IinTrie(int[] children, int[] ranks, Object[] values, T defaultValue, int depth) {
+        this.children = children;
+        this.ranks = ranks;
+        this.values = values;
+        this.defaultValue = defaultValue;
+        this.depth = depth;
+    }
+
+    /**
+     * 数字列の先頭から一致するプレフィックスを探し、最も先に登録された値を返す。
+     * 数字以外の文字（セパレーター）は読み飛ばす。
+     *
+     * @param s     数字列
+     * @param start 開始位置
+     * @param end   終了位置
+     * @return 一致した値。一致しない場合はデフォルト値
+     */
+    @NonNull
+    T find(@NonNull CharSequence s, int start, int end) {
+        int node = ROOT;
+        int best = ROOT;
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (!isDigit(c)) {
+                continue;
+            }
+            node = child(node, c);
+            if (node == NO_NODE) {
+                break;
+            }
+            best = better(best, node);
+        }
+        return valueAt(best);
+    }
+
+    /**
+     * ノードから数字を一つ進めた子ノードを返す
+     *
+     * @param node 現在のノード（{@link #NO_NODE}以外）
+     * @param c    次の文字
+     * @return 子ノード。存在しない場合は{@link #NO_NODE}
+     */
+    int child(int node, char c) {
+        final int digit = c - '0';
+        if (digit < 0 || digit >= RADIX) {
+            return NO_NODE;
+        }
+        return children[node * RADIX + digit];
+    }
+
+    /**
+     * 文字が半角数字か否かを返す
+     */
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * 二つのノードのうち、先に登録された値を持つ方を返す
+     */
+    int better(int best, int node) {
+        return ranks[node] < ranks[best] ? node : best;
+    }
+
+    /**
+     * ノードに対応する値を返す。値を持たないノードの場合はデフォルト値を返す
+     */
+    @NonNull
+    T valueAt(int node) {
+        return ranks[node] == NO_RANK ? defaultValue : value(node);
+    }
+
+    /**
+     * 登録されたプレフィックスの最大長を返す
+     */
+    int depth() {
+        return depth;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T value(int node) {
+        return (T) values[node];
+    }
+
+    /**
+     * Builder of {@link IinTrie}.
+     *
+     * @param <T> type of the value associated with prefixes
+     */
+    static final class Builder<T> {
+
+        private final ArrayList<int[]> children = new ArrayList<>();
+        private final ArrayList<Integer> ranks = new ArrayList<>();
+        private final ArrayList<Object> values = new ArrayList<>();
+        private final T defaultValue;
+        private int nextRank;
+        private int depth;
+
+        Builder(@NonNull T defaultValue) {
+            this.defaultValue = defaultValue;
+            newNode();
+        }
+
+        /**
+         * Register prefixes for the value.
+         * <p>
+         * Each prefix is a digit string ("34") or an inclusive range of
+         * digit strings of the same length ("51-55").
+         *
+         * @param value    value associated with the prefixes
+         * @param prefixes prefixes of the value
+         * @return this builder
+         */
+        @NonNull
+        Builder<T> add(@NonNull T value, @NonNull String... prefixes) {
+            final int rank = nextRank++;
+            for (String prefix : prefixes) {
+                final int dash = prefix.indexOf('-');
+                if (dash < 0) {
+                    put(prefix, value, rank);
+                } else {
+                    addRange(prefix.substring(0, dash), prefix.substring(dash + 1), value, rank);
+                }
+            }
+            return this;
+        }
+
+        private void addRange(String low, String high, T value, int rank) {
+            if (low.length() != high.length()) {
+                throw new IllegalArgumentException("range bounds must have the same length: " + low + "-" + high);
+            }
+            final long from = Long.parseLong(low);
+            final long to = Long.parseLong(high);
+            if (from > to) {
+                throw new IllegalArgumentException("invalid range: " + low + "-" + high);
+            }
+            final StringBuilder sb = new StringBuilder(low.length());
+            for (long n = from; n <= to; n++) {
+                sb.setLength(0);
+                sb.append(n);
+                while (sb.length() < low.length()) {
+                    sb.insert(0, '0');
+                }
+                put(sb.toString(), value, rank);
+            }
+        }
+
+        private void put(String prefix, T value, int rank) {
+            if (prefix.length() == 0) {
+                throw new IllegalArgumentException("empty prefix");
+            }
+            depth = Math.max(depth, prefix.length());
+            int node = 0;
+            for (int i = 0; i < prefix.length(); i++) {
+                final int digit = prefix.charAt(i) - '0';
+                if (digit < 0 || digit >= RADIX) {
+                    throw new IllegalArgumentException("prefix must consist of digits: " + prefix);
+                }
+                final int[] links = children.get(node);
+                if (links[digit] == 0) {
+                    links[digit] = newNode();
+                }
+                node = links[digit];
+            }
+            // 同じプレフィックスが複数登録された場合は先に登録されたものを優先する
+            if (rank < ranks.get(node)) {
+                ranks.set(node, rank);
+                values.set(node, value);
+            }
+        }
+
+        private int newNode() {
+            children.add(new int[RADIX]);
+            ranks.add(NO_RANK);
+            values.add(null);
+            return children.size() - 1;
+        }
+
+        @NonNull
+        IinTrie<T> build() {
+            final int size = children.size();
+            final int[] flatChildren = new int[size * RADIX];
+            final int[] flatRanks = new int[size];
+            for (int i = 0; i < size; i++) {
+                System.arraycopy(children.get(i), 0, flatChildren, i * RADIX, RADIX);
+                flatRanks[i] = ranks.get(i);
+            }
+            return new IinTrie<>(flatChildren, flatRanks, values.toArray(), defaultValue, depth);
+        }
+    }
+}
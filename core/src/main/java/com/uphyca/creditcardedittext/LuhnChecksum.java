@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Running Luhn (mod 10) checksum of card number.
+ * <p>
+ * Which digits are doubled depends on the length of the number, so two prefix sums
+ * are kept: one doubling the digits at even indices and one doubling those at odd
+ * indices. Only the digits after the first changed one are re-summed, so appending
+ * or deleting a digit at the end costs O(1) besides comparing the unchanged prefix.
+ * <p>
+ * This class is not thread-safe. Each view owns its own instance.
+ */
+final class LuhnChecksum {
+
+    private static final int INITIAL_CAPACITY = 19;
+
+    private char[] digits = new char[INITIAL_CAPACITY];
+    /**
+     * evenSums[k]は先頭k桁のうち偶数番目（0始まり）の桁を2倍した合計
+     */
+    private int[] evenSums = new int[INITIAL_CAPACITY + 1];
+    /**
+     * oddSums[k]は先頭k桁のうち奇数番目（0始まり）の桁を2倍した合計
+     */
+    private int[] oddSums = new int[INITIAL_CAPACITY + 1];
+    private int length;
+
+    /**
+     * 数字列でチェックサムを更新する。
+     * 前回の入力と共通するプレフィックスは再計算しない。
+     * 数字以外の文字（セパレーター）は読み飛ばす。
+     *
+     * @param s     数字列
+     * @param start 開始位置
+     * @param end   終了位置
+     */
+    void update(@NonNull CharSequence s, int start, int end) {
+        // 前回と異なる位置まで巻き戻す
+        int i = start;
+        int k = 0;
+        for (; i < end && k < length; i++) {
+            final char c = s.charAt(i);
+            if (!IinTrie.isDigit(c)) {
+                continue;
+            }
+            if (c != digits[k]) {
+                break;
+            }
+            k++;
+        }
+        length = k;
+
+        // 残りの桁を加算する
+        for (; i < end; i++) {
+            final char c = s.charAt(i);
+            if (!IinTrie.isDigit(c)) {
+                continue;
+            }
+            if (length == digits.length) {
+                grow();
+            }
+            final int digit = c - '0';
+            final int doubled = digit < 5 ? digit * 2 : digit * 2 - 9;
+            final boolean even = (length & 1) == 0;
+            digits[length] = c;
+            evenSums[length + 1] = evenSums[length] + (even ? doubled : digit);
+            oddSums[length + 1] = oddSums[length] + (even ? digit : doubled);
+            length++;
+        }
+    }
+
+    /**
+     * 数字の桁数を返す
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Luhnアルゴリズムのチェックサムが正しいか否かを返す
+     *
+     * @return 1桁以上あり、チェックサムが正しい場合はtrue
+     */
+    boolean isValid() {
+        if (length == 0) {
+            return false;
+        }
+        // 右端の桁から数えて偶数番目（1始まり）の桁を2倍する
+        final int sum = (length & 1) == 0 ? evenSums[length] : oddSums[length];
+        return sum % 10 == 0;
+    }
+
+    private void grow() {
+        final int capacity = digits.length * 2;
+        final char[] newDigits = new char[capacity];
+        final int[] newEvenSums = new int[capacity + 1];
+        final int[] newOddSums = new int[capacity + 1];
+        System.arraycopy(digits, 0, newDigits, 0, length);
+        System.arraycopy(evenSums, 0, newEvenSums, 0, length + 1);
+        System.arraycopy(oddSums, 0, newOddSums, 0, length + 1);
+        digits = newDigits;
+        evenSums = newEvenSums;
+        oddSums = newOddSums;
+    }
+}
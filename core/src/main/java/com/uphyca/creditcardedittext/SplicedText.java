@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Read-only view of {@code dest} whose range [dstart, dend) is replaced by
+ * {@code source[start, end)}, as passed to {@code InputFilter#filter}.
+ * <p>
+ * The instance is reusable, so the text after an edit can be inspected without
+ * building a temporary String on each keystroke.
+ */
+final class SplicedText implements CharSequence {
+
+    private CharSequence source;
+    private int start;
+    private int end;
+    private CharSequence dest;
+    private int dstart;
+    private int dend;
+
+    /**
+     * 参照する文字列を設定する
+     *
+     * @return this
+     */
+    @NonNull
+    SplicedText set(@NonNull CharSequence source, int start, int end, @NonNull CharSequence dest, int dstart, int dend) {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        this.dest = dest;
+        this.dstart = dstart;
+        this.dend = dend;
+        return this;
+    }
+
+    /**
+     * 参照を解放する
+     */
+    void clear() {
+        source = null;
+        dest = null;
+    }
+
+    @Override
+    public int length() {
+        return dest.length() - (dend - dstart) + (end - start);
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < dstart) {
+            return dest.charAt(index);
+        }
+        final int sourceLength = end - start;
+        if (index < dstart + sourceLength) {
+            return source.charAt(start + index - dstart);
+        }
+        return dest.charAt(dend + index - dstart - sourceLength);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return toString().substring(from, to);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(length());
+        sb.append(dest, 0, dstart);
+        sb.append(source, start, end);
+        sb.append(dest, dend, dest.length());
+        return sb.toString();
+    }
+}
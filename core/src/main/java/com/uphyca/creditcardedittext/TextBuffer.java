@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Growable char[] exposed as a CharSequence.
+ * <p>
+ * The formatters write formatted text into an instance owned by the view and reuse it
+ * for every edit, so a keystroke does not allocate once the array has grown to the
+ * maximum length of the field.
+ */
+final class TextBuffer implements CharSequence {
+
+    private static final int DEFAULT_CAPACITY = 32;
+
+    private char[] chars;
+    private int length;
+
+    TextBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    TextBuffer(int capacity) {
+        chars = new char[capacity];
+    }
+
+    /**
+     * 内容を空にする（配列は解放しない）
+     */
+    void clear() {
+        length = 0;
+    }
+
+    /**
+     * 指定の長さまで再確保せずに書き込めるようにする
+     *
+     * @param capacity 必要な長さ
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            final char[] newChars = new char[Math.max(capacity, chars.length * 2)];
+            System.arraycopy(chars, 0, newChars, 0, length);
+            chars = newChars;
+        }
+    }
+
+    /**
+     * 末尾に一文字追加する
+     *
+     * @param c 追加する文字
+     */
+    void append(char c) {
+        if (length == chars.length) {
+            ensureCapacity(length + 1);
+        }
+        chars[length++] = c;
+    }
+
+    /**
+     * 内容を指定の文字列で置き換える
+     *
+     * @param s 文字列
+     * @return this
+     */
+    @NonNull
+    TextBuffer set(@NonNull CharSequence s) {
+        final int newLength = s.length();
+        length = 0;
+        ensureCapacity(newLength);
+        for (int i = 0; i < newLength; i++) {
+            chars[i] = s.charAt(i);
+        }
+        length = newLength;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index >= length) {
+            throw new IndexOutOfBoundsException("index=" + index + ", length=" + length);
+        }
+        return chars[index];
+    }
+
+    @NonNull
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(chars, start, end - start);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
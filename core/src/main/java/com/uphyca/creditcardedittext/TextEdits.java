@@ -0,0 +1,406 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * 書式付きの数字入力で共通する文字列操作
+ */
+final class TextEdits {
+
+    static final String EMPTY = "";
+
+    private TextEdits() {
+    }
+
+    /**
+     * 二つの文字列の内容が等しいか否かを返す（android.text.TextUtils#equalsと同じ）
+     */
+    static boolean contentEquals(@Nullable CharSequence a, @Nullable CharSequence b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null || a.length() != b.length()) {
+            return false;
+        }
+        final int length = a.length();
+        for (int i = 0; i < length; i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 文字列中の指定位置の文字と、指定の文字を比較する。
+     * 指定位置が有効ではない場合はfalseを返す。
+     *
+     * @param s     文字列
+     * @param index 対象文字列中で比較する文字の位置
+     * @param c     比較文字
+     * @return 文字が同じ場合はtrue、それ以外はfalse
+     */
+    static boolean equalsCharAt(CharSequence s, int index, char c) {
+        return index < s.length() && s.charAt(index) == c;
+    }
+
+    /**
+     * 文字列の指定範囲から全てのセパレーターを除去する
+     *
+     * @param s         文字列
+     * @param start     開始位置
+     * @param end       終了位置
+     * @param separator セパレーター
+     * @return セパレーター除去後の文字列
+     */
+    @NonNull
+    static String removeSeparators(CharSequence s, int start, int end, char separator) {
+        final StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c != separator) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 文字列からセパレーターを除いた数字でバッファを更新する。
+     * 数字が変わっていない場合はバッファを書き換えない。
+     *
+     * @param s         文字列
+     * @param separator セパレーター
+     * @param digits    前回の数字を保持するバッファ
+     * @return 数字が変わった場合はtrue
+     */
+    static boolean updateDigits(CharSequence s, char separator, StringBuilder digits) {
+        final int length = s.length();
+        final int digitsLength = digits.length();
+        int digitCount = 0;
+        boolean changed = false;
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c == separator) {
+                continue;
+            }
+            if (digitCount >= digitsLength || digits.charAt(digitCount) != c) {
+                changed = true;
+                break;
+            }
+            digitCount++;
+        }
+        if (!changed && digitCount == digitsLength) {
+            return false;
+        }
+        digits.setLength(0);
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c != separator) {
+                digits.append(c);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 文字列からセパレーターを除いて書式に従ってセパレーターを挿入し直す。
+     * 整形後のカーソル位置も同じ走査で求める。
+     * <p>
+     * カーソル位置は{@code skipIndex}の文字を読み飛ばす前の桁数から求める。
+     *
+     * @param s              整形前の文字列（数字とセパレーター）
+     * @param skipIndex      読み飛ばす文字の位置（読み飛ばさない場合は-1）
+     * @param format         書式
+     * @param separator      セパレーター
+     * @param selectionIndex 整形前の文字列上のカーソル位置
+     * @param out            整形後の文字列を書き込むバッファ
+     * @return 整形後のカーソル位置
+     */
+    static int reformat(CharSequence s, int skipIndex, GroupFormat format, char separator, int selectionIndex, TextBuffer out) {
+        final int length = s.length();
+        out.clear();
+        out.ensureCapacity(length + format.groups().length);
+        int digitCount = 0;
+        int selectionDigits = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c == separator) {
+                continue;
+            }
+            if (i < selectionIndex) {
+                selectionDigits++;
+            }
+            digitCount++;
+            if (i == skipIndex) {
+                continue;
+            }
+            // 次の桁の前がセパレーター位置であればセパレーターを書き込む（末尾の桁の後には書き込まない）
+            while (format.isSeparatorPosition(out.length())) {
+                out.append(separator);
+            }
+            out.append(c);
+        }
+        return format.toDisplayIndex(selectionDigits, digitCount);
+    }
+
+    /**
+     * 編集後の文字列を書式に従って整形する（各書式エンジンの{@code format}に共通する処理）
+     * <p>
+     * DELキーでセパレーターが削除された場合は、セパレーターの前の桁を削除する。
+     *
+     * @param before               編集前の文字列
+     * @param beforeSelectionStart 編集前のカーソル開始位置
+     * @param beforeSelectionEnd   編集前のカーソル終了位置
+     * @param after                編集後の文字列
+     * @param afterSelectionStart  編集後のカーソル開始位置
+     * @param afterSelectionEnd    編集後のカーソル終了位置
+     * @param format               書式
+     * @param separator            セパレーター
+     * @param maxLength            セパレーターを含む最大長
+     * @param out                  整形後の文字列とカーソル位置
+     * @return 整形後の文字列が編集後の文字列と異なる場合はtrue
+     */
+    static boolean format(CharSequence before, int beforeSelectionStart, int beforeSelectionEnd,
+                          CharSequence after, int afterSelectionStart, int afterSelectionEnd,
+                          GroupFormat format, char separator, int maxLength, EditResult out) {
+        final int beforeRawLength = before.length();
+
+        boolean noSelection = beforeSelectionStart == beforeSelectionEnd;
+        // DELキーでの文字削除か否か
+        boolean deleteKeyEntered = noSelection // 範囲選択状態ではない
+                && beforeSelectionStart > 1 // カーソルが1文字目より後（DELキーで削除でいる状態）だったか否か
+                && afterSelectionStart == beforeSelectionStart - 1 // カーソルが一文字分前に来たか否か
+                && afterSelectionStart == afterSelectionEnd; // 範囲選択状態ではない
+        // DELキーで削除されたのがセパレーターか否か
+        boolean separatorDeleted = deleteKeyEntered
+                && beforeSelectionStart < beforeRawLength
+                && equalsCharAt(before, beforeSelectionStart - 1, separator); // 削除されたのがセパレーターか否か
+        // セパレーターが削除されたら直前の文字を削除する
+        int skipIndex = -1;
+        if (separatorDeleted) {
+            // セパレーター位置でセパレーターを入力後に連続したセパレーターの一つが削除された場合、
+            // DELキーによる削除とみなすとセパレーターの前の文字が意図せず消えるのを抑止する。
+            // Precondition:
+            //   "4242 1110<> 2"
+            // スペースを入力
+            //   "4242 1110 <> 2"
+            // 編集でスペースが整形される。
+            // この状態は"4242 1110 <> 2"からDELキーで削除した状態と変わらないので、セパレーターが連続しているかどうかで判断する
+            //   "4242 1110<> 2"
+            if (!equalsCharAt(before, beforeSelectionStart, separator)) {
+                skipIndex = afterSelectionStart - 1;
+            }
+        }
+
+        // セパレーターの除去と挿入、カーソル位置の調整を一回の走査で行う
+        final int selectionIndex = separatorDeleted ? afterSelectionStart - 1 : afterSelectionStart;
+        final int newSelectionIndex = reformat(after, skipIndex, format, separator, selectionIndex, out.text);
+
+        if (contentEquals(after, out.text)) {
+            out.setSelection(afterSelectionStart, afterSelectionEnd);
+            return false;
+        }
+
+        // セパレーター挿入後にカーソル位置がずれるので、編集後の文字列上のカーソル位置から調整する
+        final int selection = Math.min(newSelectionIndex, maxLength);
+        out.setSelection(selection, selection);
+        return true;
+    }
+
+    /**
+     * 数字（全角数字を含む）を半角数字に変換する
+     *
+     * @param c 文字
+     * @return 半角数字、数字ではない場合は0
+     */
+    static char normalizeDigit(char c) {
+        if (IinTrie.isDigit(c)) {
+            return c;
+        }
+        if (c >= '\uFF10' && c <= '\uFF19') {
+            return (char) (c - '\uFF10' + '0');
+        }
+        return 0;
+    }
+
+    /**
+     * 文字列の指定範囲の数字（全角数字を含む）を半角数字にしてバッファに書き込む。数字以外は除去する
+     *
+     * @param source 文字列
+     * @param start  開始位置
+     * @param end    終了位置
+     * @param digits 数字を書き込むバッファ
+     */
+    static void normalizeDigits(CharSequence source, int start, int end, StringBuilder digits) {
+        digits.setLength(0);
+        for (int i = start; i < end; i++) {
+            final char c = normalizeDigit(source.charAt(i));
+            if (c != 0) {
+                digits.append(c);
+            }
+        }
+    }
+
+    /**
+     * 貼り付けなどで入力された複数の数字を、入力位置に合わせて整形する（各書式エンジンの{@code filter}に共通する処理）
+     * <p>
+     * 置換範囲外の桁数を除いて最大桁数に収まるよう数字を切り詰め、
+     * 入力位置から書式のセパレーター位置にセパレーターを挿入する（末尾の桁の後には挿入しない）。
+     *
+     * @param digits     入力された数字（半角数字のみ）。収まらない分はこのバッファから切り詰める
+     * @param dest       入力先の文字列
+     * @param dstart     置換範囲の開始位置
+     * @param dend       置換範囲の終了位置
+     * @param format     書式
+     * @param separator  セパレーター
+     * @param maxDigits  セパレーターを含まない最大桁数
+     * @param separators セパレーターを挿入する場合はtrue
+     * @param out        セパレーター挿入後の文字列を書き込むバッファ
+     * @return 入力位置に挿入する文字列（{@code digits}または{@code out}）
+     */
+    static CharSequence filterBulk(StringBuilder digits, CharSequence dest, int dstart, int dend,
+                                   GroupFormat format, char separator, int maxDigits, boolean separators, StringBuilder out) {
+        // 置換範囲外の桁数を除いた分だけ残す
+        final int keep = maxDigits - countDigits(dest, 0, dstart) - countDigits(dest, dend, dest.length());
+        if (keep < digits.length()) {
+            digits.setLength(Math.max(keep, 0));
+        }
+        if (!separators) {
+            return digits;
+        }
+
+        out.setLength(0);
+        final int length = digits.length();
+        for (int i = 0; i < length; i++) {
+            while (format.isSeparatorPosition(dstart + out.length())) {
+                out.append(separator);
+            }
+            out.append(digits.charAt(i));
+        }
+        return out;
+    }
+
+    /**
+     * 文字列の指定範囲の数字の桁数を返す
+     */
+    static int countDigits(CharSequence s, int start, int end) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (IinTrie.isDigit(s.charAt(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Taken from android.text.InputFilter.LengthFilter
+    @Nullable
+    static CharSequence lengthFilter(int maxLength, CharSequence source, int start, int end, CharSequence dest, int dstart, int dend) {
+        int keep = maxLength - (dest.length() - (dend - dstart));
+        if (keep <= 0) {
+            return EMPTY;
+        } else if (keep >= end - start) {
+            return null; // keep original
+        } else {
+            keep += start;
+            if (Character.isHighSurrogate(source.charAt(keep - 1))) {
+                --keep;
+                if (keep == start) {
+                    return EMPTY;
+                }
+            }
+            return source.subSequence(start, keep);
+        }
+    }
+
+    /**
+     * 受け付ける文字（数字とセパレーター）以外を除去する（android.text.method.NumberKeyListener#filterと同じ）
+     *
+     * @return 変更がない場合はnull
+     */
+    @Nullable
+    static CharSequence acceptedChars(CharSequence source, int start, int end, char separator) {
+        return acceptedChars(source, start, end, separator, true);
+    }
+
+    /**
+     * 受け付ける文字（数字）以外を除去する（android.text.method.NumberKeyListener#filterと同じ）
+     *
+     * @return 変更がない場合はnull
+     */
+    @Nullable
+    static CharSequence acceptedDigits(CharSequence source, int start, int end) {
+        return acceptedChars(source, start, end, (char) 0, false);
+    }
+
+    @Nullable
+    private static CharSequence acceptedChars(CharSequence source, int start, int end, char separator, boolean separators) {
+        int i;
+        for (i = start; i < end; i++) {
+            if (!isAccepted(source.charAt(i), separator, separators)) {
+                break;
+            }
+        }
+        if (i == end) {
+            return null;
+        }
+        if (end - start == 1) {
+            return EMPTY;
+        }
+        final StringBuilder filtered = new StringBuilder(end - start);
+        for (int j = start; j < end; j++) {
+            final char c = source.charAt(j);
+            if (isAccepted(c, separator, separators)) {
+                filtered.append(c);
+            }
+        }
+        return filtered;
+    }
+
+    private static boolean isAccepted(char c, char separator, boolean separators) {
+        return IinTrie.isDigit(c) || (separators && c == separator);
+    }
+
+    /**
+     * 置換後のカーソル位置を返す（android.text.SpannableStringBuilder#replaceと同じ）
+     * <p>
+     * 置換範囲の内側にあるカーソルは置換後の長さに比例して移動し、境界にあるカーソルは置換後の文字列の末尾に移動する。
+     *
+     * @param index     置換前のカーソル位置
+     * @param start     置換範囲の開始位置
+     * @param end       置換範囲の終了位置
+     * @param newLength 置換後の文字列の長さ
+     * @return 置換後のカーソル位置
+     */
+    static int moveSelection(int index, int start, int end, int newLength) {
+        final int origLength = end - start;
+        if (index > end) {
+            return index + newLength - origLength;
+        }
+        if (index > start && index < end && newLength > 0) {
+            return start + (int) ((long) (index - start) * newLength / origLength);
+        }
+        if (index >= start) {
+            return start + newLength;
+        }
+        return index;
+    }
+}
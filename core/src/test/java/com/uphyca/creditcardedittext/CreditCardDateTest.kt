@@ -0,0 +1,55 @@
+package com.uphyca.creditcardedittext
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+/**
+ * Test for [CreditCardDate].
+ */
+class CreditCardDateTest {
+
+    /**
+     * 同じ月と年は共有インスタンスになる
+     */
+    @Test
+    fun parseReturnsSharedInstance() {
+        val date = CreditCardDateFormatter.parse("12/25")
+        assertThat(CreditCardDateFormatter.parse("1225")).isSameInstanceAs(date)
+        assertThat(CreditCardDate.valueOf("12", "25")).isSameInstanceAs(date)
+        assertThat(CreditCardDate("12", "25")).isEqualTo(date)
+    }
+
+    /**
+     * 月と年を数値で取得できる
+     */
+    @Test
+    fun intValues() {
+        val date = CreditCardDateFormatter.parse("01/2")
+        assertThat(date.monthValue).isEqualTo(1)
+        assertThat(date.yearValue).isEqualTo(2)
+        assertThat(date.isComplete).isFalse()
+        assertThat(CreditCardDateFormatter.parse("").monthValue).isEqualTo(-1)
+    }
+
+    /**
+     * 未入力の月と年は空白で表示される
+     */
+    @Test
+    fun partialToString() {
+        assertThat(CreditCardDateFormatter.parse("").toString()).isEqualTo("  /  ")
+        assertThat(CreditCardDateFormatter.parse("0").toString()).isEqualTo("0/  ")
+    }
+
+    /**
+     * 区切られた月と年を二桁ずつの数字に変換する
+     */
+    @Test
+    fun normalize() {
+        assertThat(CreditCardDateFormatter.normalize("12/2031")).isEqualTo("1231")
+        assertThat(CreditCardDateFormatter.normalize("1/31")).isEqualTo("0131")
+        assertThat(CreditCardDateFormatter.normalize("12 - 31")).isEqualTo("1231")
+        assertThat(CreditCardDateFormatter.normalize("122031")).isEqualTo("1231")
+        assertThat(CreditCardDateFormatter.normalize("123")).isEqualTo("123")
+        assertThat(CreditCardDateFormatter.toDigits(9, 2031)).isEqualTo("0931")
+    }
+}
@@ -0,0 +1,78 @@
+package com.uphyca.creditcardedittext
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+import java.util.Calendar
+
+/**
+ * Test for [CreditCardDateValidator].
+ */
+class CreditCardDateValidatorTest {
+
+    private var now = 0L
+    private lateinit var underTest: CreditCardDateValidator
+
+    @Before
+    fun setUp() {
+        now = timeOf(2026, Calendar.OCTOBER, 18)
+        underTest = CreditCardDateValidator(CreditCardDateValidator.Clock { now })
+    }
+
+    /**
+     * 有効期限の月の末日までは有効
+     */
+    @Test
+    fun validThroughExpirationMonth() {
+        assertThat(underTest.validate(CreditCardDateFormatter.parse("10/26"))).isEqualTo(ExpiryStatus.VALID)
+        assertThat(underTest.validate(CreditCardDateFormatter.parse("09/26"))).isEqualTo(ExpiryStatus.EXPIRED)
+    }
+
+    /**
+     * 未入力の桁がある場合は検証しない
+     */
+    @Test
+    fun incomplete() {
+        assertThat(underTest.validate(CreditCardDateFormatter.parse("10/2"))).isEqualTo(ExpiryStatus.INCOMPLETE)
+    }
+
+    /**
+     * 有効期間より先の年は無効
+     */
+    @Test
+    fun tooFarInFuture() {
+        underTest.maxYearsAhead = 10
+        assertThat(underTest.validate(CreditCardDateFormatter.parse("10/36"))).isEqualTo(ExpiryStatus.VALID)
+        assertThat(underTest.validate(CreditCardDateFormatter.parse("11/36"))).isEqualTo(ExpiryStatus.TOO_FAR_IN_FUTURE)
+    }
+
+    /**
+     * 二桁の年はピボットから始まる100年の範囲で解釈される
+     */
+    @Test
+    fun twoDigitYearPivot() {
+        assertThat(underTest.validate(CreditCardDateFormatter.parse("12/99"))).isEqualTo(ExpiryStatus.EXPIRED)
+        underTest.twoDigitYearPivot = 0
+        assertThat(underTest.validate(CreditCardDateFormatter.parse("12/99"))).isEqualTo(ExpiryStatus.TOO_FAR_IN_FUTURE)
+    }
+
+    /**
+     * 現在の年月は1分間キャッシュされる
+     */
+    @Test
+    fun cacheCurrentMonth() {
+        now = timeOf(2026, Calendar.OCTOBER, 31, 23, 59, 30)
+        assertThat(underTest.validate(CreditCardDateFormatter.parse("10/26"))).isEqualTo(ExpiryStatus.VALID)
+        now += 40_000
+        assertThat(underTest.validate(CreditCardDateFormatter.parse("10/26"))).isEqualTo(ExpiryStatus.VALID)
+        now += 20_000
+        assertThat(underTest.validate(CreditCardDateFormatter.parse("10/26"))).isEqualTo(ExpiryStatus.EXPIRED)
+    }
+
+    private fun timeOf(year: Int, month: Int, day: Int, hour: Int = 0, minute: Int = 0, second: Int = 0): Long {
+        val calendar = Calendar.getInstance()
+        calendar.clear()
+        calendar.set(year, month, day, hour, minute, second)
+        return calendar.timeInMillis
+    }
+}
@@ -0,0 +1,95 @@
+package com.uphyca.creditcardedittext
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Test for [CreditCardNumberFormatter].
+ */
+class CreditCardNumberFormatterTest {
+
+    private lateinit var underTest: CreditCardNumberFormatter
+
+    @Before
+    fun setUp() {
+        underTest = CreditCardNumberFormatter()
+    }
+
+    /**
+     * 一文字ずつ入力するとブランドの書式で整形される
+     */
+    @Test
+    fun typeAmericanExpress() {
+        val result = EditResult()
+        var text = ""
+        var selection = 0
+        for (c in "378282246310005") {
+            underTest.reduce(text, selection, selection, selection, selection, c.toString(), result)
+            text = result.getText()
+            selection = result.getSelectionStart()
+        }
+        assertThat(result.getText()).isEqualTo("3782 822463 10005")
+        assertThat(result.getSelectionStart()).isEqualTo(17)
+        assertThat(result.getBrand()).isEqualTo(CreditCardBrand.AMERICAN_EXPRESS.cardBrand)
+    }
+
+    /**
+     * 未入力状態からペーストすると末尾にカーソルが移動する
+     */
+    @Test
+    fun paste() {
+        val result = underTest.reduce("", 0, 0, 0, 0, "4242424242424242")
+        assertThat(result.getText()).isEqualTo("4242 4242 4242 4242")
+        assertThat(result.getSelectionStart()).isEqualTo(19)
+        assertThat(result.getSelectionEnd()).isEqualTo(19)
+    }
+
+    /**
+     * 数字とセパレーター以外は除去され、ブランドの最大桁数を超えた分は切り捨てられる
+     */
+    @Test
+    fun pasteWithInvalidCharacters() {
+        val result = underTest.reduce("", 0, 0, 0, 0, "4242a4242 42424242999")
+        assertThat(result.getText()).isEqualTo("4242 4242 4242 4242")
+    }
+
+    /**
+     * セパレーターの直後でDELキーを押すと、セパレーターの前の数字が削除される
+     */
+    @Test
+    fun deleteSeparator() {
+        val result = underTest.reduce("4242 4242", 5, 5, 4, 5, "")
+        assertThat(result.getText()).isEqualTo("4244 242")
+        assertThat(result.getSelectionStart()).isEqualTo(3)
+    }
+
+    /**
+     * 中間に入力するとカーソルは入力した文字の直後に移動する
+     */
+    @Test
+    fun insertBeforeSeparator() {
+        val result = underTest.reduce("4242 1110 2222", 9, 9, 9, 9, "3")
+        assertThat(result.getText()).isEqualTo("4242 1110 3222 2")
+        assertThat(result.getSelectionStart()).isEqualTo(11)
+    }
+
+    /**
+     * ハイフン区切りや全角数字の貼り付けは数字に正規化して整形される
+     */
+    @Test
+    fun pasteWithHyphensAndFullWidthDigits() {
+        assertThat(underTest.reduce("", 0, 0, 0, 0, "4242-4242-4242-4242").getText()).isEqualTo("4242 4242 4242 4242")
+        assertThat(underTest.reduce("", 0, 0, 0, 0, "\uFF14\uFF12\uFF14\uFF12\uFF14\uFF12").getText()).isEqualTo("4242 42")
+    }
+
+    /**
+     * 貼り付けは、置換範囲外の桁と合わせてブランドの最大桁数に切り詰められる
+     */
+    @Test
+    fun pasteTruncatedToMaxLength() {
+        val result = underTest.reduce("4242 4242", 5, 5, 5, 5, "1111-2222-3333")
+        assertThat(result.getText()).isEqualTo("4242 1111 2222 4242")
+        assertThat(result.getSelectionStart()).isEqualTo(15)
+    }
+}
@@ -0,0 +1,72 @@
+package com.uphyca.creditcardedittext
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+/**
+ * Test for [DigitsFormatter].
+ */
+class DigitsFormatterTest {
+
+    /**
+     * 一文字ずつ入力するとテンプレートの書式で整形される
+     */
+    @Test
+    fun typeDigits() {
+        val underTest = DigitsFormatter(DigitsTemplate(7, intArrayOf(3, 4), '-'))
+        val result = EditResult()
+        var text = ""
+        var selection = 0
+        for (c in "12345678") {
+            underTest.reduce(text, selection, selection, selection, selection, c.toString(), result)
+            text = result.getText()
+            selection = result.getSelectionStart()
+        }
+        assertThat(result.getText()).isEqualTo("123-4567")
+        assertThat(result.getSelectionStart()).isEqualTo(8)
+        assertThat(result.getBrand()).isNull()
+    }
+
+    /**
+     * 貼り付けでは全角数字が変換され、数字以外は除去される
+     */
+    @Test
+    fun pasteWithInvalidCharacters() {
+        val underTest = DigitsFormatter(DigitsTemplate(7, intArrayOf(3, 4), '-'))
+        val result = underTest.reduce("", 0, 0, 0, 0, "〒１２３ー4567")
+        assertThat(result.getText()).isEqualTo("123-4567")
+        assertThat(result.getSelectionStart()).isEqualTo(8)
+    }
+
+    /**
+     * 入力位置で受け付けない数字は除去される
+     */
+    @Test
+    fun rejectDigitNotAllowed() {
+        val underTest = DigitsFormatter(DigitsTemplate(4, intArrayOf(2, 2), '/', "01"))
+        assertThat(underTest.reduce("", 0, 0, 0, 0, "2").getText()).isEqualTo("")
+        assertThat(underTest.reduce("", 0, 0, 0, 0, "1225").getText()).isEqualTo("12/25")
+        assertThat(underTest.reduce("", 0, 0, 0, 0, "3225").getText()).isEqualTo("")
+    }
+
+    /**
+     * セパレーターの直後でDELキーを押すと、セパレーターの前の数字が削除される
+     */
+    @Test
+    fun deleteSeparator() {
+        val underTest = DigitsFormatter(DigitsTemplate(7, intArrayOf(3, 4), '-'))
+        val result = underTest.reduce("123-4567", 4, 4, 3, 4, "")
+        assertThat(result.getText()).isEqualTo("124-567")
+        assertThat(result.getSelectionStart()).isEqualTo(2)
+    }
+
+    /**
+     * 最大桁数が書式の桁数より多い場合は、最後のグループの後にセパレーターが一つ入る
+     */
+    @Test
+    fun separatorCount() {
+        assertThat(DigitsTemplate(4, intArrayOf(), ' ').separatorCount).isEqualTo(0)
+        assertThat(DigitsTemplate(7, intArrayOf(3, 4), '-').separatorCount).isEqualTo(1)
+        assertThat(DigitsTemplate(9, intArrayOf(3, 4), '-').separatorCount).isEqualTo(2)
+    }
+}
@@ -0,0 +1,93 @@
+package com.uphyca.creditcardedittext
+
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Mockito.mock
+import org.mockito.Mockito.verify
+
+/**
+ * Test for [CreditCardCvcEditText].
+ */
+@RunWith(AndroidJUnit4::class)
+class CreditCardCvcEditTextTest {
+
+    private lateinit var numberEditText: CreditCardNumberEditText
+    private lateinit var underTest: CreditCardCvcEditText
+
+    @Before
+    fun setUp() {
+        numberEditText = CreditCardNumberEditText(ApplicationProvider.getApplicationContext())
+        underTest = CreditCardCvcEditText(ApplicationProvider.getApplicationContext())
+        underTest.setNumberEditText(numberEditText)
+    }
+
+    /**
+     * ブランドが未確定の間は4桁まで入力でき、3桁でも4桁でも有効
+     */
+    @Test
+    fun unknownBrand() {
+        underTest.setText("12345")
+        assertThat(underTest.getCvc()).isEqualTo("1234")
+        assertThat(underTest.isValid()).isTrue()
+    }
+
+    /**
+     * 番号のブランドに従って桁数が変わる
+     */
+    @Test
+    fun followBrandOfNumber() {
+        numberEditText.setText("378282246310005")
+        underTest.setText("1234")
+        assertThat(underTest.getCardBrand()).isEqualTo(CreditCardBrand.AMERICAN_EXPRESS.cardBrand)
+        assertThat(underTest.isValid()).isTrue()
+
+        numberEditText.setText("4242424242424242")
+        assertThat(underTest.getCardBrand()).isEqualTo(CreditCardBrand.VISA.cardBrand)
+        assertThat(underTest.getCvc()).isEqualTo("123")
+        assertThat(underTest.isValid()).isTrue()
+    }
+
+    /**
+     * ブランドが変わって有効性が変わると、数字が同じでもリスナーが呼ばれる
+     */
+    @Test
+    fun sendValidityChanged() {
+        val listener = mock(CreditCardCvcListener::class.java)
+        underTest.addCvcListener(listener)
+        underTest.setText("123")
+        verify(listener).onChanged("123", true)
+
+        numberEditText.setText("378282246310005")
+        verify(listener).onChanged("123", false)
+    }
+
+    /**
+     * ブランドが変わっても、カーソルは末尾へ動かず新しい桁数の範囲に収められる
+     */
+    @Test
+    fun keepSelectionOnBrandChange() {
+        numberEditText.setText("4242424242424242")
+        underTest.setText("123")
+        underTest.setSelection(1)
+
+        numberEditText.setText("378282246310005")
+        assertThat(underTest.text.toString()).isEqualTo("123")
+        assertThat(underTest.selectionStart).isEqualTo(1)
+        assertThat(underTest.selectionEnd).isEqualTo(1)
+
+        numberEditText.setText("4242424242424242")
+        assertThat(underTest.text.toString()).isEqualTo("123")
+        assertThat(underTest.selectionStart).isEqualTo(1)
+
+        numberEditText.setText("378282246310005")
+        underTest.setText("1234")
+        underTest.setSelection(4)
+        numberEditText.setText("4242424242424242")
+        assertThat(underTest.text.toString()).isEqualTo("123")
+        assertThat(underTest.selectionStart).isEqualTo(3)
+    }
+}
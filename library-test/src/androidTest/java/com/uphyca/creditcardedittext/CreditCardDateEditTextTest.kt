@@ -1,7 +1,12 @@
 package com.uphyca.creditcardedittext
 
+import android.os.Build
+import android.view.View
+import android.view.autofill.AutofillValue
 import androidx.test.core.app.ApplicationProvider
 import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SdkSuppress
+import com.google.common.truth.Truth.assertThat
 import com.uphyca.creditcardedittext.subject.CreditCardDateEditTextSubject.Companion.assertThat
 import org.junit.Before
 import org.junit.Test
@@ -10,6 +15,8 @@ import org.mockito.Mockito.mock
 import org.mockito.Mockito.never
 import org.mockito.Mockito.times
 import org.mockito.Mockito.verify
+import java.util.Calendar
+import java.util.TimeZone
 
 /**
  * Test for [CreditCardDateEditText].
@@ -182,4 +189,77 @@ class CreditCardDateEditTextTest {
         verify(mockCreditCardDateListener, times(1))
             .onChanged(CreditCardDate("01", "23"))
     }
+
+    /**
+     * 日付の値で自動入力でき、月の初日の日付を返す
+     */
+    @Test
+    @SdkSuppress(minSdkVersion = Build.VERSION_CODES.O)
+    fun autofillDate() {
+        underTest.addDateListener(mockCreditCardDateListener)
+        val calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"))
+        calendar.clear()
+        calendar.set(2031, Calendar.SEPTEMBER, 30)
+        underTest.autofill(AutofillValue.forDate(calendar.timeInMillis))
+        assertThat(underTest).hasTextString("09/31")
+        verify(mockCreditCardDateListener, times(1)).onChanged(CreditCardDate("09", "31"))
+
+        calendar.set(2031, Calendar.SEPTEMBER, 1)
+        assertThat(underTest.autofillType).isEqualTo(View.AUTOFILL_TYPE_DATE)
+        assertThat(underTest.autofillValue!!.dateValue).isEqualTo(calendar.timeInMillis)
+    }
+
+    /**
+     * 月の初日の日付は、端末のタイムゾーンによらずその月として自動入力される
+     */
+    @Test
+    @SdkSuppress(minSdkVersion = Build.VERSION_CODES.O)
+    fun autofillFirstDayOfMonth() {
+        val defaultTimeZone = TimeZone.getDefault()
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"))
+        try {
+            val calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"))
+            calendar.clear()
+            calendar.set(2031, Calendar.OCTOBER, 1)
+            underTest.autofill(AutofillValue.forDate(calendar.timeInMillis))
+            assertThat(underTest).hasTextString("10/31")
+            assertThat(underTest.autofillValue!!.dateValue).isEqualTo(calendar.timeInMillis)
+        } finally {
+            TimeZone.setDefault(defaultTimeZone)
+        }
+    }
+
+    /**
+     * 四桁の年や一桁の月の文字列で自動入力できる
+     */
+    @Test
+    @SdkSuppress(minSdkVersion = Build.VERSION_CODES.O)
+    fun autofillText() {
+        underTest.autofill(AutofillValue.forText("12/2031"))
+        assertThat(underTest).hasTextString("12/31")
+        underTest.autofill(AutofillValue.forText("1/31"))
+        assertThat(underTest).hasTextString("01/31")
+    }
+
+    /**
+     * 月と年の値で有効期限をまとめて設定できる
+     */
+    @Test
+    fun setDate() {
+        underTest.addDateListener(mockCreditCardDateListener)
+        underTest.setDate(9, 2031)
+        assertThat(underTest).hasTextString("09/31")
+        verify(mockCreditCardDateListener, times(1)).onChanged(CreditCardDate("09", "31"))
+        underTest.setDate(12, 31, false)
+        assertThat(underTest).hasDate(CreditCardDate("12", "31"))
+        verify(mockCreditCardDateListener, never()).onChanged(CreditCardDate("12", "31"))
+    }
+
+    /**
+     * 範囲外の月は設定できない
+     */
+    @Test(expected = IllegalArgumentException::class)
+    fun setDateWithInvalidMonth() {
+        underTest.setDate(13, 2031)
+    }
 }
@@ -0,0 +1,129 @@
+package com.uphyca.creditcardedittext
+
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.ArgumentMatchers.any
+import org.mockito.ArgumentMatchers.anyString
+import org.mockito.Mockito.mock
+import org.mockito.Mockito.never
+import org.mockito.Mockito.times
+import org.mockito.Mockito.verify
+import java.util.Calendar
+
+/**
+ * Test for [CreditCardForm].
+ */
+@RunWith(AndroidJUnit4::class)
+class CreditCardFormTest {
+
+    private lateinit var numberEditText: CreditCardNumberEditText
+    private lateinit var dateEditText: CreditCardDateEditText
+    private lateinit var cvcEditText: CreditCardCvcEditText
+    private lateinit var underTest: CreditCardForm
+
+    @Before
+    fun setUp() {
+        numberEditText = CreditCardNumberEditText(ApplicationProvider.getApplicationContext())
+        dateEditText = CreditCardDateEditText(ApplicationProvider.getApplicationContext())
+        cvcEditText = CreditCardCvcEditText(ApplicationProvider.getApplicationContext())
+        underTest = CreditCardForm(numberEditText, dateEditText, cvcEditText)
+        underTest.setListenerDispatchDelay(FormattedDigitsEditText.DISPATCH_IMMEDIATELY)
+    }
+
+    /**
+     * 全ての入力欄が有効になるとフォームが有効になる
+     */
+    @Test
+    fun validForm() {
+        assertThat(underTest.isValid()).isFalse()
+        numberEditText.setText("4242424242424242")
+        // 来年の12月
+        val year = (Calendar.getInstance().get(Calendar.YEAR) + 1) % 100
+        dateEditText.setText(String.format("12%02d", year))
+        cvcEditText.setText("123")
+        val state = underTest.getState()
+        assertThat(state.getCardBrand()).isEqualTo(CreditCardBrand.VISA.cardBrand)
+        assertThat(state.isNumberValid()).isTrue()
+        assertThat(state.isCvcValid()).isTrue()
+        assertThat(state.isDateValid()).isTrue()
+        assertThat(underTest.isValid()).isTrue()
+    }
+
+    /**
+     * 状態が変わった場合にだけリスナーが呼ばれる
+     */
+    @Test
+    fun sendStateChangedOnlyIfChanged() {
+        val listener = mock(CreditCardFormListener::class.java)
+        underTest.addFormListener(listener)
+        numberEditText.setText("4")
+        numberEditText.setText("42")
+        numberEditText.setText("424")
+        // ブランドが変わった一回だけ呼ばれる
+        verify(listener, times(1)).onStateChanged(any(CreditCardFormState::class.java))
+    }
+
+    /**
+     * ブランドが変わるとセキュリティコードの有効性も変わる
+     */
+    @Test
+    fun cvcFollowsBrand() {
+        numberEditText.setText("4242424242424242")
+        cvcEditText.setText("123")
+        assertThat(underTest.getState().isCvcValid()).isTrue()
+        numberEditText.setText("378282246310005")
+        assertThat(underTest.getState().isCvcValid()).isFalse()
+    }
+
+    /**
+     * リスナーを呼ばずに設定した値にも、フォームとセキュリティコードの入力欄が追従する
+     */
+    @Test
+    fun followSilentChange() {
+        val listener = mock(CreditCardNumberListener::class.java)
+        numberEditText.addNumberListener(listener)
+        numberEditText.setNumber("378282246310005", false)
+        verify(listener, never()).onChanged(anyString(), any())
+        assertThat(underTest.getState().getCardBrand()).isEqualTo(CreditCardBrand.AMERICAN_EXPRESS.cardBrand)
+        assertThat(underTest.getState().isNumberValid()).isTrue()
+        assertThat(cvcEditText.getCardBrand()).isEqualTo(CreditCardBrand.AMERICAN_EXPRESS.cardBrand)
+    }
+
+    /**
+     * 即時に呼び出す場合は、変更ごとに最新の状態でリスナーが呼ばれる
+     */
+    @Test
+    fun dispatchImmediately() {
+        val listener = mock(CreditCardFormListener::class.java)
+        underTest.addFormListener(listener)
+        numberEditText.setText("4242424242424242")
+        verify(listener, times(1)).onStateChanged(underTest.getState())
+        assertThat(underTest.getState().isNumberValid()).isTrue()
+    }
+
+    /**
+     * 既定では次のフレームでまとめて呼び出すが、状態はフレームを待たずに更新される
+     */
+    @Test
+    fun defaultDispatchDelay() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val number = CreditCardNumberEditText(ApplicationProvider.getApplicationContext())
+            val date = CreditCardDateEditText(ApplicationProvider.getApplicationContext())
+            val form = CreditCardForm(number, date, null)
+            assertThat(form.getListenerDispatchDelay()).isEqualTo(FormattedDigitsEditText.DISPATCH_NEXT_FRAME)
+            val listener = mock(CreditCardFormListener::class.java)
+            form.addFormListener(listener)
+            number.setText("4242424242424242")
+            assertThat(form.getState().isNumberValid()).isTrue()
+            verify(listener, never()).onStateChanged(any(CreditCardFormState::class.java))
+            // 遅延を変えると保留中の呼び出しが即時に実行される
+            form.setListenerDispatchDelay(FormattedDigitsEditText.DISPATCH_IMMEDIATELY)
+            verify(listener, times(1)).onStateChanged(form.getState())
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package com.uphyca.creditcardedittext
 
+import android.os.Build
+import android.text.TextWatcher
+import android.text.style.ReplacementSpan
+import android.view.autofill.AutofillValue
 import androidx.test.core.app.ApplicationProvider
 import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SdkSuppress
+import com.google.common.truth.Truth.assertThat
 import com.uphyca.creditcardedittext.subject.CreditCardNumberEditTextSubject.Companion.assertThat
 import org.junit.Before
 import org.junit.Test
@@ -10,6 +16,7 @@ import org.mockito.Mockito.mock
 import org.mockito.Mockito.never
 import org.mockito.Mockito.times
 import org.mockito.Mockito.verify
+import java.util.concurrent.Executor
 
 /**
  * Test for [CreditCardNumberEditText].
@@ -19,10 +26,12 @@ class CreditCardNumberEditTextTest {
 
     private lateinit var underTest: CreditCardNumberEditText
     private lateinit var mockCreditCardNumberListener: CreditCardNumberListener
+    private lateinit var mockCreditCardNumberValidityListener: CreditCardNumberValidityListener
 
     @Before
     fun setUp() {
         mockCreditCardNumberListener = mock(CreditCardNumberListener::class.java)
+        mockCreditCardNumberValidityListener = mock(CreditCardNumberValidityListener::class.java)
         underTest = CreditCardNumberEditText(ApplicationProvider.getApplicationContext())
     }
 
@@ -139,4 +148,233 @@ class CreditCardNumberEditTextTest {
         verify(mockCreditCardNumberListener, times(1))
             .onChanged("4242424242424242", CreditCardBrand.VISA)
     }
+
+    /**
+     * チェックサムが正しい番号
+     */
+    @Test
+    fun luhnValid() {
+        underTest.setText("4242424242424242")
+        assertThat(underTest).isLuhnValid(true)
+    }
+
+    /**
+     * チェックサムが正しくない番号
+     */
+    @Test
+    fun luhnInvalid() {
+        underTest.setText("4242424242424241")
+        assertThat(underTest).isLuhnValid(false)
+    }
+
+    /**
+     * 末尾の桁を削除するとチェックサムが再計算される
+     */
+    @Test
+    fun luhnAfterDelete() {
+        underTest.setText("42424242424242420")
+        assertThat(underTest).isLuhnValid(false)
+        underTest.text!!.delete(underTest.length() - 1, underTest.length())
+        assertThat(underTest).isLuhnValid(true)
+    }
+
+    /**
+     * チェックサムの結果を通知する
+     */
+    @Test
+    fun sendValidityChanged() {
+        underTest.addValidityListener(mockCreditCardNumberValidityListener)
+        underTest.setText("4242424242424242")
+        verify(mockCreditCardNumberValidityListener, times(1))
+            .onChanged("4242424242424242", CreditCardBrand.VISA, true)
+    }
+
+    /**
+     * 入力前に整形する場合は、編集ごとにTextWatcherが一回だけ呼ばれる
+     */
+    @Test
+    fun formatBeforeCommit() {
+        underTest.setFormatBeforeCommit(true)
+        underTest.setText("4242")
+        val mockTextWatcher = mock(TextWatcher::class.java)
+        underTest.addTextChangedListener(mockTextWatcher)
+        underTest.text!!.append("1")
+        assertThat(underTest).hasTextString("4242 1")
+        verify(mockTextWatcher, times(1)).afterTextChanged(underTest.text)
+    }
+
+    /**
+     * セパレーターをスパンで描画する場合は、文字列は数字だけを保持する
+     */
+    @Test
+    fun separatorSpans() {
+        underTest.setText("4242 4242")
+        underTest.setSeparatorSpansEnabled(true)
+        assertThat(underTest).hasTextString("42424242")
+        underTest.text!!.append("42")
+        assertThat(underTest).hasTextString("4242424242")
+        assertThat(underTest).hasNumber("4242424242")
+        val spans = underTest.text!!.getSpans(0, underTest.length(), ReplacementSpan::class.java)
+        assertThat(spans.map { underTest.text!!.getSpanStart(it) }.sorted()).containsExactly(4, 8).inOrder()
+    }
+
+    /**
+     * セパレーターのスパンを無効にすると、スパンを除去してセパレーターを文字列に戻す
+     */
+    @Test
+    fun disableSeparatorSpans() {
+        underTest.setSeparatorSpansEnabled(true)
+        underTest.setText("42424242")
+        underTest.setSeparatorSpansEnabled(false)
+        assertThat(underTest).hasTextString("4242 4242")
+        assertThat(underTest.text!!.getSpans(0, underTest.length(), ReplacementSpan::class.java)).isEmpty()
+    }
+
+    /**
+     * リスナーの呼び出しをまとめる場合は、最新の番号で一回だけ呼ばれる
+     */
+    @Test
+    fun coalesceListenerDispatch() {
+        underTest.addNumberListener(mockCreditCardNumberListener)
+        underTest.setListenerDispatchDelay(60_000)
+        underTest.setText("4242")
+        underTest.setText("4242424242424242")
+        verify(mockCreditCardNumberListener, never())
+            .onChanged("4242", CreditCardBrand.VISA)
+        underTest.setListenerDispatchDelay(FormattedDigitsEditText.DISPATCH_IMMEDIATELY)
+        verify(mockCreditCardNumberListener, times(1)).onChanged("4242424242424242", CreditCardBrand.VISA)
+    }
+
+    /**
+     * Executorを指定したリスナーには、変更ごとのスナップショットが渡される
+     */
+    @Test
+    fun sendSnapshotOnExecutor() {
+        val snapshots = ArrayList<CreditCardNumberSnapshot>()
+        underTest.addNumberListener(Executor { it.run() }, CreditCardNumberSnapshotListener { snapshots.add(it) })
+        underTest.setText("4242424242424242")
+        assertThat(snapshots).hasSize(1)
+        assertThat(snapshots[0].number).isEqualTo("4242424242424242")
+        assertThat(snapshots[0].brand).isEqualTo(CreditCardBrand.VISA)
+        assertThat(snapshots[0].isLuhnValid).isTrue()
+        assertThat(snapshots[0].revision).isEqualTo(underTest.revision)
+    }
+
+    /**
+     * スナップショットの文字列表現には、番号の末尾4桁だけが含まれる
+     */
+    @Test
+    fun snapshotToStringMasksNumber() {
+        val snapshot = CreditCardNumberSnapshot("4242424242421234", CreditCardBrand.VISA, true, 1)
+        assertThat(snapshot.toString()).contains("number=****1234")
+        assertThat(snapshot.toString()).doesNotContain("4242424242421234")
+        assertThat(snapshot.toString()).doesNotContain("424242")
+        assertThat(CreditCardNumberSnapshot("4242", CreditCardBrand.UNKNOWN, false, 1).toString()).doesNotContain("4242")
+    }
+
+    /**
+     * 数字とブランドが変わらない場合、変更は通知されない
+     */
+    @Test
+    fun notSendNumberChangedIfNotChanged() {
+        underTest.addNumberListener(mockCreditCardNumberListener)
+        underTest.setText("4242")
+        underTest.setText("4242")
+        verify(mockCreditCardNumberListener, times(1))
+            .onChanged("4242", CreditCardBrand.VISA)
+    }
+
+    /**
+     * ブランドが変わった場合にだけ、ブランドの変更を通知する
+     */
+    @Test
+    fun sendBrandChanged() {
+        val mockCreditCardBrandListener = mock(CreditCardBrandListener::class.java)
+        underTest.addBrandListener(mockCreditCardBrandListener)
+        underTest.setText("4")
+        underTest.setText("42")
+        verify(mockCreditCardBrandListener, times(1))
+            .onBrandChanged(CreditCardBrand.UNKNOWN.cardBrand, CreditCardBrand.VISA.cardBrand)
+    }
+
+    /**
+     * 番号の文字列はビューにキャッシュされない
+     */
+    @Test
+    fun getNumberIsNotCached() {
+        underTest.setText("4242424242424242")
+        assertThat(underTest.number).isEqualTo("4242424242424242")
+        assertThat(underTest.number).isNotSameInstanceAs(underTest.number)
+    }
+
+    /**
+     * リスナーが全て解除されると通知済みの番号を破棄するので、再登録後は同じ番号でも通知される
+     */
+    @Test
+    fun forgetSentNumberWithoutListeners() {
+        underTest.addNumberListener(mockCreditCardNumberListener)
+        underTest.setText("4242")
+        underTest.removeNumberListener(mockCreditCardNumberListener)
+        underTest.setText("")
+        underTest.addNumberListener(mockCreditCardNumberListener)
+        underTest.setText("4242")
+        verify(mockCreditCardNumberListener, times(2)).onChanged("4242", CreditCardBrand.VISA)
+    }
+
+    /**
+     * 番号をコピーせずに参照でき、配列にコピーすることもできる
+     */
+    @Test
+    fun getNumberDigits() {
+        underTest.setText("4242424242424242")
+        val digits = underTest.numberDigits
+        assertThat(digits.length).isEqualTo(16)
+        assertThat(digits[4]).isEqualTo('4')
+        assertThat(digits.toString()).isEqualTo("4242424242424242")
+        val dest = CharArray(19)
+        assertThat(underTest.getNumber(dest)).isEqualTo(16)
+        assertThat(String(dest, 0, 16)).isEqualTo("4242424242424242")
+    }
+
+    /**
+     * 自動入力された番号は一回の置換で整形され、リスナーも一回だけ呼ばれる
+     */
+    @Test
+    @SdkSuppress(minSdkVersion = Build.VERSION_CODES.O)
+    fun autofill() {
+        underTest.addNumberListener(mockCreditCardNumberListener)
+        val mockTextWatcher = mock(TextWatcher::class.java)
+        underTest.addTextChangedListener(mockTextWatcher)
+        underTest.autofill(AutofillValue.forText("4242-4242-4242-4242"))
+        assertThat(underTest).hasTextString("4242 4242 4242 4242")
+        assertThat(underTest.selectionStart).isEqualTo(19)
+        verify(mockTextWatcher, times(1)).afterTextChanged(underTest.text)
+        verify(mockCreditCardNumberListener, times(1)).onChanged("4242424242424242", CreditCardBrand.VISA)
+    }
+
+    /**
+     * 番号をまとめて設定すると、一回の置換で整形され、リスナーも一回だけ呼ばれる
+     */
+    @Test
+    fun setNumber() {
+        underTest.addNumberListener(mockCreditCardNumberListener)
+        val mockTextWatcher = mock(TextWatcher::class.java)
+        underTest.addTextChangedListener(mockTextWatcher)
+        underTest.setNumber("4242-4242-4242-4242-999")
+        assertThat(underTest).hasTextString("4242 4242 4242 4242")
+        verify(mockTextWatcher, times(1)).afterTextChanged(underTest.text)
+        verify(mockCreditCardNumberListener, times(1)).onChanged("4242424242424242", CreditCardBrand.VISA)
+    }
+
+    /**
+     * リスナーを呼ばずに番号を設定でき、その値は通知済みとして扱われる
+     */
+    @Test
+    fun setNumberWithoutNotification() {
+        underTest.addNumberListener(mockCreditCardNumberListener)
+        underTest.setNumber("4242424242424242", false)
+        assertThat(underTest).hasNumber("4242424242424242")
+        underTest.setNumber("4242424242424242")
+        verify(mockCreditCardNumberListener, never()).onChanged("4242424242424242", CreditCardBrand.VISA)
+    }
 }
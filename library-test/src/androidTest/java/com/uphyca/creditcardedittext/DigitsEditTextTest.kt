@@ -0,0 +1,57 @@
+package com.uphyca.creditcardedittext
+
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.common.truth.Truth.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Mockito.mock
+import org.mockito.Mockito.verify
+
+/**
+ * Test for [DigitsEditText].
+ */
+@RunWith(AndroidJUnit4::class)
+class DigitsEditTextTest {
+
+    private lateinit var underTest: DigitsEditText
+
+    @Before
+    fun setUp() {
+        underTest = DigitsEditText(ApplicationProvider.getApplicationContext())
+        underTest.setFormatTemplate(DigitsTemplate(7, intArrayOf(3, 4), '-'))
+    }
+
+    /**
+     * テンプレートの書式で整形され、最大桁数に切り詰められる
+     */
+    @Test
+    fun formatByTemplate() {
+        underTest.setText("123456789")
+        assertThat(underTest.text.toString()).isEqualTo("123-4567")
+        assertThat(underTest.getDigits()).isEqualTo("1234567")
+    }
+
+    /**
+     * テンプレートを変更すると、現在の数字が新しい書式で整形される
+     */
+    @Test
+    fun changeTemplate() {
+        underTest.setText("1234567")
+        underTest.setFormatTemplate(DigitsTemplate(4, intArrayOf(2, 2), '/', "01"))
+        assertThat(underTest.text.toString()).isEqualTo("12/34")
+        assertThat(underTest.getFormatTemplate().maxLength).isEqualTo(4)
+    }
+
+    /**
+     * 数字が変わるとリスナーが呼ばれる
+     */
+    @Test
+    fun sendDigitsChanged() {
+        val listener = mock(FormattedDigitsListener::class.java)
+        underTest.addDigitsListener(listener)
+        underTest.setText("1234")
+        verify(listener).onChanged("1234")
+    }
+}
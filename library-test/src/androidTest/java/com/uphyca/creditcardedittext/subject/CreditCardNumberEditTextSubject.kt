@@ -33,6 +33,12 @@ class CreditCardNumberEditTextSubject private constructor(
             .isEqualTo(brand)
     }
 
+    fun isLuhnValid(valid: Boolean) {
+        check("isLuhnValid()")
+            .that(actual.isLuhnValid)
+            .isEqualTo(valid)
+    }
+
     companion object {
 
         @JvmStatic
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * EditText for security code (CVC) of credit card.
+ * <p>
+ * The length of the security code depends on the brand, as defined by {@link CardBrand#getSecurityCodeLength()}.
+ * Bind the field to {@link CreditCardNumberEditText} by {@link #setNumberEditText}, and the maximum length and
+ * the validation follow the brand of the number. The field receives the brand detected by the number field
+ * only when it changes, and does not inspect the number.
+ * Use {@link CreditCardCvcListener} to receive the change of security code and its validity.
+ */
+public class CreditCardCvcEditText extends FormattedDigitsEditText {
+
+    private static final char SEPARATOR = ' ';
+    private static final int[] NO_GROUPS = new int[0];
+
+    private ArrayList<CreditCardCvcListener> listeners;
+    private CreditCardNumberEditText numberEditText;
+    private CardBrand cardBrand = CreditCardBrand.UNKNOWN.getCardBrand();
+    private boolean changedValid;
+    // 最後に通知した有効性
+    private boolean sentValid;
+
+    private final CreditCardBrandListener brandListener = new CreditCardBrandListener() {
+        @Override
+        public void onBrandChanged(@NonNull CardBrand oldBrand, @NonNull CardBrand newBrand) {
+            setCardBrand(newBrand);
+        }
+    };
+
+    // 番号がリスナーを呼ばずに設定された場合もブランドに合わせる
+    private final Runnable numberSilentChangeCallback = new Runnable() {
+        @Override
+        public void run() {
+            setCardBrand(numberEditText.getCardBrand());
+        }
+    };
+
+    public CreditCardCvcEditText(Context context) {
+        super(context, templateOf(CreditCardBrand.UNKNOWN.getCardBrand()));
+    }
+
+    public CreditCardCvcEditText(Context context, AttributeSet attrs) {
+        super(context, attrs, templateOf(CreditCardBrand.UNKNOWN.getCardBrand()));
+    }
+
+    public CreditCardCvcEditText(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr, templateOf(CreditCardBrand.UNKNOWN.getCardBrand()));
+    }
+
+    private static DigitsTemplate templateOf(CardBrand brand) {
+        return new DigitsTemplate(brand.getSecurityCodeLength(), NO_GROUPS, SEPARATOR);
+    }
+
+    /**
+     * Bind the field to a field of card number. The maximum length follows the brand of the number.
+     *
+     * @param numberEditText field of card number, or null to unbind
+     */
+    public void setNumberEditText(@Nullable CreditCardNumberEditText numberEditText) {
+        if (this.numberEditText != null) {
+            this.numberEditText.removeBrandListener(brandListener);
+            this.numberEditText.removeSilentChangeCallback(numberSilentChangeCallback);
+        }
+        this.numberEditText = numberEditText;
+        if (numberEditText != null) {
+            numberEditText.addBrandListener(brandListener);
+            numberEditText.addSilentChangeCallback(numberSilentChangeCallback);
+            setCardBrand(numberEditText.getCardBrand());
+        }
+    }
+
+    /**
+     * Set the brand of credit card. It is set by the field bound by {@link #setNumberEditText}.
+     * <p>
+     * If the security code is longer than the brand allows, the extra digits are removed.
+     *
+     * @param brand brand of credit card
+     */
+    public void setCardBrand(@NonNull CardBrand brand) {
+        if (brand == cardBrand) {
+            return;
+        }
+        cardBrand = brand;
+        // 桁数が変わる場合にだけ書式を差し替える
+        final DigitsTemplate template = getFormatTemplate();
+        if (template == null || template.getMaxLength() != brand.getSecurityCodeLength()) {
+            applyTemplate(templateOf(brand));
+        }
+        // 桁数が変わらなくても有効性は変わりうるので、リスナーの呼び出しを要求する
+        dispatchChanged();
+    }
+
+    /**
+     * Return the brand of credit card that defines the length of security code.
+     *
+     * @return the brand of credit card
+     */
+    @NonNull
+    public CardBrand getCardBrand() {
+        return cardBrand;
+    }
+
+    /**
+     * Register a listener to receive the change of security code
+     *
+     * @param listener added listener
+     */
+    public void addCvcListener(CreditCardCvcListener listener) {
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregister listener that registered by {@link #addCvcListener}
+     *
+     * @param listener removed listener
+     */
+    public void removeCvcListener(CreditCardCvcListener listener) {
+        if (listeners != null) {
+            int i = listeners.indexOf(listener);
+            if (i >= 0) {
+                listeners.remove(i);
+            }
+        }
+        onListenerRemoved();
+    }
+
+    /**
+     * Return the security code.
+     *
+     * @return the security code
+     */
+    @NonNull
+    public String getCvc() {
+        return getDigits();
+    }
+
+    /**
+     * Copy the security code into an array.
+     * <p>
+     * The caller can clear the array after use, so the security code does not remain in the heap.
+     *
+     * @param dest array to receive the digits
+     * @return the number of digits copied
+     * @throws IllegalArgumentException if the array is shorter than the security code
+     */
+    public int getCvc(@NonNull char[] dest) {
+        return getDigits(dest);
+    }
+
+    /**
+     * Return whether the length of the security code matches the brand.
+     * While the brand is {@link CreditCardBrand#UNKNOWN}, both 3 and 4 digits are valid.
+     *
+     * @return true if the security code is valid for the brand
+     */
+    public boolean isValid() {
+        // 文字列を生成せずに桁数を数える
+        final int length = getDigitsView().length();
+        if (cardBrand == CreditCardBrand.UNKNOWN.getCardBrand()) {
+            return length >= CardBrand.DEFAULT_SECURITY_CODE_LENGTH && length <= cardBrand.getSecurityCodeLength();
+        }
+        return length == cardBrand.getSecurityCodeLength();
+    }
+
+    @Override
+    String getDefaultAutofillHint() {
+        return View.AUTOFILL_HINT_CREDIT_CARD_SECURITY_CODE;
+    }
+
+    @Override
+    boolean hasChanged(boolean digitsChanged) {
+        // 数字も有効性も前回の通知から変わっていない場合は通知しない
+        changedValid = isValid();
+        return digitsChanged || changedValid != sentValid;
+    }
+
+    @Override
+    void onChangeSuppressed() {
+        changedValid = isValid();
+        sentValid = changedValid;
+    }
+
+    @Override
+    boolean hasListeners() {
+        return (listeners != null && !listeners.isEmpty()) || super.hasListeners();
+    }
+
+    @Override
+    void notifyChanged(@NonNull CharSequence text, @NonNull CharSequence digits, long revision) {
+        final boolean valid = changedValid;
+        sentValid = valid;
+        if (listeners != null && !listeners.isEmpty()) {
+            // リスナーが登録されている場合にだけ文字列を生成する
+            final String cvc = digits.toString();
+            final ArrayList<CreditCardCvcListener> list = listeners;
+            final int count = list.size();
+            for (int i = 0; i < count; i++) {
+                list.get(i).onChanged(cvc, valid);
+            }
+        }
+        super.notifyChanged(text, digits, revision);
+    }
+}
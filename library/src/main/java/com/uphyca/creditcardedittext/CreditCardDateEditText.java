@@ -17,75 +17,66 @@
 package com.uphyca.creditcardedittext;
 
 import android.content.Context;
+import android.os.Build;
 import android.text.Editable;
-import android.text.InputFilter;
-import android.text.InputType;
-import android.text.Spanned;
-import android.text.TextUtils;
 import android.text.TextWatcher;
-import android.text.method.NumberKeyListener;
 import android.util.AttributeSet;
+import android.view.View;
+import android.view.autofill.AutofillValue;
 
 import androidx.annotation.NonNull;
-import androidx.appcompat.widget.AppCompatEditText;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 
 import java.util.ArrayList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
 
 /**
  * EditText for expiration date of credit card.
  * <p>
  * Show formatted date according to MM/yy format.
  * {@link #getDate()} returns the expiration date.
- * Use {@link CreditCardDateListener} to receive the change of expiration date.
+ * Use {@link CreditCardDateListener} to receive the change of expiration date. The listeners are called
+ * only when the date changes.
+ * {@link #getExpiryStatus()} and {@link CreditCardDateValidityListener} tell whether the card has expired,
+ * as validated by {@link CreditCardDateValidator}.
+ * <p>
+ * The autofill service can fill the field with a date value, or a text value such as "MM/yy" or "MM/yyyy".
  * <p>
  * If you register your own {@link TextWatcher} by {@link #addTextChangedListener}, you will
- * receive the change twice for user input and formatting.
+ * receive the change twice for user input and formatting, unless {@link #setFormatBeforeCommit(boolean)}
+ * is enabled.
+ * <p>
+ * {@link #setSeparatorSpansEnabled(boolean)} keeps only digits in the text and draws the separators,
+ * so an edit does not rewrite the text.
  */
-public class CreditCardDateEditText extends AppCompatEditText {
+public class CreditCardDateEditText extends FormattedDigitsEditText {
 
-    private static final char SEPARATOR = '/';
+    private static final char SEPARATOR = CreditCardDateFormatter.SEPARATOR;
     private static final String EMPTY = "";
-    private static final int MAX_LENGTH = 4;
-    private static final int SEPARATOR_COUNT = 1;
-    private static final int SEPARATOR_POSITION = 2;
-    private static final int[] FORMAT = {2, 2};
+    // 自動入力の日付はUTCの日の始まりのミリ秒で表される
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
 
     private ArrayList<CreditCardDateListener> listeners;
+    private ArrayList<CreditCardDateValidityListener> validityListeners;
+    private ArrayList<ExecutorListener<CreditCardDateSnapshotListener>> snapshotListeners;
+    // 編集リビジョンごとにキャッシュした有効期限
+    private int dateRevision = -1;
+    private CreditCardDate date;
+    private CreditCardDateValidator validator = CreditCardDateValidator.getDefault();
 
     public CreditCardDateEditText(Context context) {
-        super(context);
-        init();
+        super(context, new CreditCardDateFormatter(), SEPARATOR);
     }
 
     public CreditCardDateEditText(Context context, AttributeSet attrs) {
-        super(context, attrs);
-        init();
+        super(context, attrs, new CreditCardDateFormatter(), SEPARATOR);
     }
 
     public CreditCardDateEditText(Context context, AttributeSet attrs, int defStyleAttr) {
-        super(context, attrs, defStyleAttr);
-        init();
-    }
-
-    @Override
-    public final void setInputType(int type) {
-        super.setInputType(InputType.TYPE_NULL);
-    }
-
-    @Override
-    public final void setRawInputType(int type) {
-        super.setRawInputType(InputType.TYPE_CLASS_NUMBER);
-    }
-
-    private void init() {
-        super.setInputType(InputType.TYPE_NULL);
-        super.setRawInputType(InputType.TYPE_CLASS_NUMBER);
-        final InputFilter[] filters = {new CreditCardDateKeyListener()};
-        setFilters(filters);
-
-        addTextChangedListener(textWatcher);
+        super(context, attrs, defStyleAttr, new CreditCardDateFormatter(), SEPARATOR);
     }
 
     /**
@@ -112,294 +103,242 @@ public class CreditCardDateEditText extends AppCompatEditText {
                 listeners.remove(i);
             }
         }
+        onListenerRemoved();
     }
 
-    private final TextWatcher textWatcher = new TextWatcher() {
-
-        private String beforeText;
-        private int beforeSelectionStart;
-        private int beforeSelectionEnd;
-
-        @Override
-        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
-            beforeText = s.toString();
-            beforeSelectionStart = getSelectionStart();
-            beforeSelectionEnd = getSelectionEnd();
+    /**
+     * Register a listener to receive the change of expiration date with its validity
+     *
+     * @param listener added listener
+     * @see #setDateValidator(CreditCardDateValidator)
+     */
+    public void addValidityListener(CreditCardDateValidityListener listener) {
+        if (validityListeners == null) {
+            validityListeners = new ArrayList<>();
         }
+        validityListeners.add(listener);
+    }
 
-        @Override
-        public void onTextChanged(CharSequence s, int start, int before, int count) {
-            // noop
+    /**
+     * Unregister listener that registered by {@link #addValidityListener}
+     *
+     * @param listener removed listener
+     */
+    public void removeValidityListener(CreditCardDateValidityListener listener) {
+        if (validityListeners != null) {
+            int i = validityListeners.indexOf(listener);
+            if (i >= 0) {
+                validityListeners.remove(i);
+            }
         }
+        onListenerRemoved();
+    }
 
-        @Override
-        public void afterTextChanged(Editable s) {
-            final int beforeRawLength = beforeText.length();
-
-            final String afterCardDate = removeSeparators(s.toString());
-            final StringBuilder afterRawText = new StringBuilder(s);
+    /**
+     * Set the validator of expiration dates, to use another clock or validity window.
+     * {@link CreditCardDateValidator#getDefault()} is used by default.
+     *
+     * @param validator validator of expiration dates
+     */
+    public void setDateValidator(@NonNull CreditCardDateValidator validator) {
+        this.validator = validator;
+    }
 
-            boolean noSelection = beforeSelectionStart == beforeSelectionEnd;
-            // DELキーでの文字削除か否か
-            boolean deleteKeyEntered = noSelection // 範囲選択状態ではない
-                    && beforeSelectionStart > 1 // カーソルが1文字目より後（DELキーで削除でいる状態）だったか否か
-                    && getSelectionStart() == beforeSelectionStart - 1 // カーソルが一文字分前に来たか否か
-                    && getSelectionStart() == getSelectionEnd(); // 範囲選択状態ではない
-            // DELキーで削除されたのがセパレーターか否か
-            boolean separatorDeleted = deleteKeyEntered
-                    && beforeSelectionStart < beforeRawLength
-                    && equalsChatAt(beforeText, beforeSelectionStart - 1, SEPARATOR); // 削除されたのがセパレーターか否か
-            // セパレーターが削除されたら直前の文字を削除する
-            if (separatorDeleted) {
-                // セパレーター位置でスラッシュを入力後に連続したセパレーターの一つが削除された場合、
-                // DELキーによる削除とみなすとセパレーターの前の文字が意図せず消えるのを抑止する。
-                if (!equalsChatAt(beforeText, beforeSelectionStart, SEPARATOR)) {
-                    afterRawText.deleteCharAt(getSelectionStart() - 1);
-                }
-            }
+    @NonNull
+    public CreditCardDateValidator getDateValidator() {
+        return validator;
+    }
 
-            //final CreditCardBrand brand = CreditCardBrand.getBrand(afterCardDate);
-            // この後にseparatorを一括で挿入するので、すでに挿入済みのseparatorを削除しておく
-            removeSeparators(afterRawText, 0);
-            insertSeparator(afterRawText, 0);
+    /**
+     * Return the result of validating the expiration date against the current month.
+     *
+     * @return the result of validation
+     * @see #setDateValidator(CreditCardDateValidator)
+     */
+    @NonNull
+    public ExpiryStatus getExpiryStatus() {
+        return validator.validate(getDate());
+    }
 
-            if (!TextUtils.equals(s, afterRawText)) {
-                s.replace(0, s.length(), afterRawText.toString());
-                // セパレーター挿入後にカーソル位置がずれるので調整する
-                StringBuilder beforeRawText = new StringBuilder(beforeText);
-                int selectionIndex = separatorDeleted ? beforeSelectionStart - 1 : beforeSelectionStart;
-                selectionIndex = removeSeparators(beforeRawText, selectionIndex);
-                selectionIndex = insertSeparator(beforeRawText, selectionIndex);
-                selectionIndex = Math.min(selectionIndex, MAX_LENGTH + SEPARATOR_COUNT);
-                setSelection(selectionIndex);
-            } else {
-                // 編集完了時にだけリスナーを呼ぶ
-                sendDateChanged(parseDate(afterCardDate));
-            }
+    /**
+     * Register a listener to receive the change of expiration date on an executor.
+     * <p>
+     * Each change is delivered as an immutable {@link CreditCardDateSnapshot}, so the listener
+     * can do heavy work off the main thread without delaying the input.
+     *
+     * @param executor executor to call the listener
+     * @param listener added listener
+     */
+    public void addDateListener(@NonNull Executor executor, @NonNull CreditCardDateSnapshotListener listener) {
+        if (snapshotListeners == null) {
+            snapshotListeners = new ArrayList<>();
         }
+        snapshotListeners.add(new ExecutorListener<>(executor, listener));
+    }
 
-        private void sendDateChanged(@NonNull CreditCardDate date) {
-            if (listeners != null) {
-                final ArrayList<CreditCardDateListener> list = listeners;
-                final int count = list.size();
-                for (int i = 0; i < count; i++) {
-                    list.get(i).onChanged(date);
-                }
-            }
+    /**
+     * Unregister listener that registered by {@link #addDateListener(Executor, CreditCardDateSnapshotListener)}
+     *
+     * @param listener removed listener
+     */
+    public void removeDateListener(CreditCardDateSnapshotListener listener) {
+        if (snapshotListeners != null) {
+            ExecutorListener.remove(snapshotListeners, listener);
         }
-    };
-
-    private static class CreditCardDateKeyListener extends NumberKeyListener {
-
-        private final Pattern monthStartPattern = Pattern.compile("^[0-1].*");
-        private final Pattern monthPattern = Pattern.compile("^(0[1-9]|1[0-2]).*");
+        onListenerRemoved();
+    }
 
-        private final char[] accepted = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', SEPARATOR};
+    @RequiresApi(Build.VERSION_CODES.O)
+    @Override
+    public int getAutofillType() {
+        return AUTOFILL_TYPE_DATE;
+    }
 
-        @NonNull
-        @Override
-        protected char[] getAcceptedChars() {
-            return accepted;
+    /**
+     * Fill the field with a value from the autofill service.
+     * A date value in milliseconds is filled with its month and year in UTC, and a text value
+     * such as "MM/yy" or "MM/yyyy" is normalized. The value is formatted at once, and the listeners are called once.
+     */
+    @RequiresApi(Build.VERSION_CODES.O)
+    @Override
+    public void autofill(AutofillValue value) {
+        if (value != null && value.isDate()) {
+            final Calendar calendar = Calendar.getInstance(UTC);
+            calendar.setTimeInMillis(value.getDateValue());
+            setDigits(CreditCardDateFormatter.toDigits(calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.YEAR)));
+            return;
         }
+        if (value != null && value.isText()) {
+            setDigits(CreditCardDateFormatter.normalize(value.getTextValue()));
+            return;
+        }
+        super.autofill(value);
+    }
 
-        @Override
-        public CharSequence filter(CharSequence source, int start, int end, Spanned dest, int dstart, int dend) {
-
-            // 入力文字（数字かどうか）をチェック
-            final CharSequence out = super.filter(source, start, end, dest, dstart, dend);
-
-            if (TextUtils.equals(out, EMPTY)) {
-                return EMPTY;
-            }
+    /**
+     * Return the expiration date as a date value of the first day of the month in UTC,
+     * or null if the date is not complete.
+     */
+    @RequiresApi(Build.VERSION_CODES.O)
+    @Nullable
+    @Override
+    public AutofillValue getAutofillValue() {
+        final CreditCardDate date = getDate();
+        final int month = date.getMonthValue();
+        if (!date.isComplete() || month < 1 || month > 12) {
+            return null;
+        }
+        final Calendar calendar = Calendar.getInstance(UTC);
+        calendar.clear();
+        calendar.set(validator.fullYear(date.getYearValue()), month - 1, 1);
+        return AutofillValue.forDate(calendar.getTimeInMillis());
+    }
 
-            if (out != null) {
-                source = out;
-                start = 0;
-                end = source.length();
-            }
+    @Override
+    String getDefaultAutofillHint() {
+        return View.AUTOFILL_HINT_CREDIT_CARD_EXPIRATION_DATE;
+    }
 
-            //destにsourceをマージした文字列
-            final String tempRawText = new StringBuilder(dest)
-                    .replace(dstart, dend, source.subSequence(start, end).toString())
-                    .toString();
+    @Override
+    GroupFormat groupFormat(@NonNull CharSequence text) {
+        return CreditCardDateFormatter.FORMAT;
+    }
 
-            //書式のセパレーター位置以外に入力されたセパレーターを除去する
-            StringBuilder sourceBuf = new StringBuilder(source.subSequence(start, end));
-            for (int i = end - 1; i >= start; --i) {
-                if (sourceBuf.charAt(i) == SEPARATOR) {
-                    int index = i + dstart;
-                    if (!isSeparatorPosition(index)) {
-                        sourceBuf.deleteCharAt(i);
-                    }
-                }
-            }
-            if (!TextUtils.equals(source, sourceBuf)) {
-                source = sourceBuf;
-                start = 0;
-                end = source.length();
-            }
+    @Override
+    boolean hasListeners() {
+        return (listeners != null && !listeners.isEmpty())
+                || (validityListeners != null && !validityListeners.isEmpty())
+                || (snapshotListeners != null && !snapshotListeners.isEmpty())
+                || super.hasListeners();
+    }
 
-            //有効期限の月が0から1で始まっていない場合は除去する
-            if (tempRawText.length() >= 1) {
-                final Matcher matcher = monthStartPattern.matcher(tempRawText);
-                if (!matcher.matches()) {
-                    return EMPTY;
-                }
-            }
+    @Override
+    void notifyChanged(@NonNull CharSequence text, @NonNull CharSequence digits, long revision) {
+        sendDateChanged(text, revision);
+        super.notifyChanged(text, digits, revision);
+    }
 
-            //有効期限の月が01〜12ではない場合は、二文字目以降を除去する
-            if (tempRawText.length() >= 2) {
-                final Matcher matcher = monthPattern.matcher(tempRawText);
-                if (!matcher.matches()) {
-                    sourceBuf = new StringBuilder(source.subSequence(start, end));
-                    for (int i = end - 1; i >= start; --i) {
-                        if (dstart + i == 0) {
-                            break;
-                        }
-                        sourceBuf.deleteCharAt(i);
-                    }
-                    if (!TextUtils.equals(source, sourceBuf)) {
-                        source = sourceBuf;
-                        start = 0;
-                        end = source.length();
-                    }
-                }
+    private void sendDateChanged(CharSequence current, long revision) {
+        final boolean hasListeners = listeners != null && !listeners.isEmpty();
+        final boolean hasValidityListeners = validityListeners != null && !validityListeners.isEmpty();
+        final boolean hasSnapshotListeners = snapshotListeners != null && !snapshotListeners.isEmpty();
+        if (!hasListeners && !hasValidityListeners && !hasSnapshotListeners) {
+            return;
+        }
+        final CreditCardDate date = CreditCardDateFormatter.parse(current);
+        if (hasListeners) {
+            final ArrayList<CreditCardDateListener> list = listeners;
+            final int count = list.size();
+            for (int i = 0; i < count; i++) {
+                list.get(i).onChanged(date);
             }
-
-            // 入力文字数をチェック
-            final int maxLength = MAX_LENGTH + SEPARATOR_COUNT;
-            final CharSequence lengthOut = lengthFilter(maxLength, source, start, end, dest, dstart, dend);
-            return lengthOut == null ? source : lengthOut;
         }
-
-        private boolean isSeparatorPosition(int index) {
-            return index == SEPARATOR_POSITION;
+        // 有効性を受け取るリスナーが登録されている場合にだけ検証する
+        final ExpiryStatus status = hasValidityListeners || hasSnapshotListeners ? validator.validate(date) : null;
+        if (hasValidityListeners) {
+            final ArrayList<CreditCardDateValidityListener> list = validityListeners;
+            final int count = list.size();
+            for (int i = 0; i < count; i++) {
+                list.get(i).onChanged(date, status);
+            }
         }
-
-        // Taken from android.text.InputFilter.LengthFilter
-        private static CharSequence lengthFilter(int maxLength, CharSequence source, int start, int end, Spanned dest, int dstart, int dend) {
-            int keep = maxLength - (dest.length() - (dend - dstart));
-            if (keep <= 0) {
-                return EMPTY;
-            } else if (keep >= end - start) {
-                return null; // keep original
-            } else {
-                keep += start;
-                if (Character.isHighSurrogate(source.charAt(keep - 1))) {
-                    --keep;
-                    if (keep == start) {
-                        return EMPTY;
+        if (hasSnapshotListeners) {
+            // 全てのリスナーで同じスナップショットを共有する
+            final CreditCardDateSnapshot snapshot = new CreditCardDateSnapshot(date, status, revision);
+            final ArrayList<ExecutorListener<CreditCardDateSnapshotListener>> list = snapshotListeners;
+            final int count = list.size();
+            for (int i = 0; i < count; i++) {
+                final CreditCardDateSnapshotListener listener = list.get(i).listener;
+                list.get(i).executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onChanged(snapshot);
                     }
-                }
-                return source.subSequence(start, keep);
+                });
             }
         }
-
-        @Override
-        public int getInputType() {
-            return InputType.TYPE_CLASS_NUMBER;
-        }
     }
 
     /**
-     * Return expiration date of credit card.
+     * Set the expiration date at once.
+     * The date is formatted and committed in one change of the text, and the listeners are called once.
      *
-     * @return expiration date of credit card
+     * @param month month (1-12)
+     * @param year  year, four-digit or two-digit. Only the last two digits are used.
+     * @throws IllegalArgumentException if the month is out of range or the year is negative
      */
-    @NonNull
-    public CreditCardDate getDate() {
-        final Editable text = getText();
-        return parseDate(text == null ? "" : text.toString());
+    public void setDate(int month, int year) {
+        setDate(month, year, true);
     }
 
     /**
-     * 文字列から全てのセパレーターを除去する
+     * Set the expiration date at once.
+     * The date is formatted and committed in one change of the text.
      *
-     * @param s 文字列
-     * @return セパレーター除去後の文字列
+     * @param month  month (1-12)
+     * @param year   year, four-digit or two-digit. Only the last two digits are used.
+     * @param notify true to call the listeners once, false not to call them
+     * @throws IllegalArgumentException if the month is out of range or the year is negative
+     * @see #setDigits(CharSequence, boolean)
      */
-    @NonNull
-    private static String removeSeparators(String s) {
-        return s.replace(String.valueOf(SEPARATOR), EMPTY);
+    public void setDate(int month, int year, boolean notify) {
+        setDigits(CreditCardDateFormatter.toDigits(month, year), notify);
     }
 
     /**
-     * 文字列から全てのセパレーターを除去する
-     *
-     * @param sb             文字列
-     * @param selectionIndex セパレーター除去前のカーソル位置
-     * @return セパレーター除去後のカーソル位置
-     */
-    private static int removeSeparators(StringBuilder sb, int selectionIndex) {
-        int newSelection = selectionIndex;
-        for (int i = sb.length() - 1; i >= 0; i--) {
-            if (sb.charAt(i) == SEPARATOR) {
-                sb.deleteCharAt(i);
-                if (i < selectionIndex) {
-                    --newSelection;
-                }
-            }
-        }
-        return newSelection;
-    }
-
-    /**
-     * 有効期限の書式に従ってセパレーターを挿入する
-     *
-     * @param sb             有効期限
-     * @param selectionIndex カーソル位置
-     * @return セパレーター挿入後のカーソル位置
-     */
-    private static int insertSeparator(StringBuilder sb, int selectionIndex) {
-        int newSelectionIndex = selectionIndex;
-        int i = 0;
-        for (int number : FORMAT) {
-            i += number;
-            if (sb.length() > i) {
-                sb.insert(i, SEPARATOR);
-                if (i <= newSelectionIndex) {
-                    ++newSelectionIndex;
-                }
-            } else {
-                break;
-            }
-            i++;
-        }
-        return newSelectionIndex;
-    }
-
-    /**
-     * 文字列中の指定位置の文字と、指定の文字を比較する。
-     * 指定位置が有効ではない場合はfalseを返す。
+     * Return expiration date of credit card.
+     * The result is cached until the text changes.
      *
-     * @param s     文字列
-     * @param index 対象文字列中で比較する文字の位置
-     * @param c     比較文字
-     * @return 文字が同じ場合はtrue、それ以外はfalse
+     * @return expiration date of credit card
      */
-    private static boolean equalsChatAt(CharSequence s, int index, char c) {
-        return index < s.length() && s.charAt(index) == c;
-    }
-
     @NonNull
-    private static String safeSubstring(String s, int start, int end) {
-        if (s == null) {
-            return EMPTY;
-        }
-        if (start >= s.length()) {
-            return EMPTY;
-        }
-        if (end > s.length()) {
-            end = s.length();
+    public CreditCardDate getDate() {
+        final int editRevision = getEditRevision();
+        if (dateRevision != editRevision) {
+            final Editable text = getText();
+            date = CreditCardDateFormatter.parse(text == null ? EMPTY : text);
+            dateRevision = editRevision;
         }
-        return s.substring(start, end);
-    }
-
-    @NonNull
-    private static CreditCardDate parseDate(String s) {
-        String date = removeSeparators(s);
-        String month = safeSubstring(date, 0, 2);
-        String year = safeSubstring(date, 2, 4);
-        return new CreditCardDate(month, year);
+        return date;
     }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+/**
+ * immutable state of {@link CreditCardDateEditText} at a change
+ * <p>
+ * The revision increases with each change of the view, so a listener running on another thread
+ * can discard the result computed from an older snapshot.
+ */
+public final class CreditCardDateSnapshot {
+
+    private final CreditCardDate date;
+    private final ExpiryStatus expiryStatus;
+    private final long revision;
+
+    public CreditCardDateSnapshot(@NonNull CreditCardDate date, @NonNull ExpiryStatus expiryStatus, long revision) {
+        this.date = date;
+        this.expiryStatus = expiryStatus;
+        this.revision = revision;
+    }
+
+    /**
+     * @return expiration date of credit card
+     */
+    @NonNull
+    public CreditCardDate getDate() {
+        return date;
+    }
+
+    /**
+     * @return result of validating the date against the current month
+     */
+    @NonNull
+    public ExpiryStatus getExpiryStatus() {
+        return expiryStatus;
+    }
+
+    /**
+     * @return revision of the change, increasing with each change of the view
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    @Override
+    public String toString() {
+        return "CreditCardDateSnapshot{date=" + date + ", expiryStatus=" + expiryStatus + ", revision=" + revision + "}";
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+/**
+ * listener to receive change of {@link CreditCardDateEditText} as a snapshot on an executor
+ *
+ * @see CreditCardDateEditText#addDateListener(java.util.concurrent.Executor, CreditCardDateSnapshotListener)
+ */
+public interface CreditCardDateSnapshotListener {
+
+    /**
+     * Called on the executor when expiration date changed.
+     *
+     * @param snapshot state of the view at the change
+     */
+    void onChanged(@NonNull CreditCardDateSnapshot snapshot);
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+/**
+ * listener to receive change of {@link CreditCardDateEditText} with validity of the date
+ */
+public interface CreditCardDateValidityListener {
+
+    /**
+     * Called when expiration date changed.
+     *
+     * @param date   expiration date of credit card
+     * @param status result of validating the date against the current month
+     */
+    void onChanged(@NonNull CreditCardDate date, @NonNull ExpiryStatus status);
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * Coordinator of the fields of a credit card: number, expiration date and optional security code.
+ * <p>
+ * The form keeps the validity of each field, updated from the changes notified by the fields, so the fields
+ * are not validated again for the form and {@link #getState()} costs O(1).
+ * {@link CreditCardFormListener} is called only when the state changes, and the changes of the fields by
+ * an edit are coalesced into one call per frame by default.
+ * Use the form on the main thread, and call {@link #release()} when the fields are no longer used.
+ */
+public final class CreditCardForm {
+
+    private final CreditCardNumberEditText numberEditText;
+    private final CreditCardDateEditText dateEditText;
+    private final CreditCardCvcEditText cvcEditText;
+    private ArrayList<CreditCardFormListener> listeners;
+    // 各入力欄から通知された最新の状態
+    private CardBrand cardBrand;
+    private boolean numberValid;
+    private ExpiryStatus expiryStatus;
+    private boolean cvcValid;
+    // 最新の状態から生成した状態と、最後に通知した状態
+    private CreditCardFormState state;
+    private CreditCardFormState sentState;
+
+    private final ListenerDispatcher listenerDispatcher = new ListenerDispatcher(new Runnable() {
+        @Override
+        public void run() {
+            sendStateChanged();
+        }
+    });
+
+    private final CreditCardBrandListener brandListener = new CreditCardBrandListener() {
+        @Override
+        public void onBrandChanged(@NonNull CardBrand oldBrand, @NonNull CardBrand newBrand) {
+            cardBrand = newBrand;
+            // 番号の有効性はこの後に呼ばれる番号のリスナーで更新する
+            invalidateState();
+        }
+    };
+
+    private final CreditCardNumberValidityListener numberListener = new CreditCardNumberValidityListener() {
+        @Override
+        public void onChanged(@NonNull String number, @NonNull CreditCardBrand brand, boolean luhnValid) {
+            final boolean valid = isNumberValid(cardBrand, number.length(), luhnValid);
+            if (valid != numberValid) {
+                numberValid = valid;
+                invalidateState();
+            }
+        }
+    };
+
+    private final CreditCardDateValidityListener dateListener = new CreditCardDateValidityListener() {
+        @Override
+        public void onChanged(@NonNull CreditCardDate date, @NonNull ExpiryStatus status) {
+            if (status != expiryStatus) {
+                expiryStatus = status;
+                invalidateState();
+            }
+        }
+    };
+
+    private final CreditCardCvcListener cvcListener = new CreditCardCvcListener() {
+        @Override
+        public void onChanged(@NonNull String cvc, boolean valid) {
+            if (valid != cvcValid) {
+                cvcValid = valid;
+                invalidateState();
+            }
+        }
+    };
+
+    // 入力欄がリスナーを呼ばずに設定された場合は、入力欄から状態を読み直す
+    private final Runnable silentChangeCallback = new Runnable() {
+        @Override
+        public void run() {
+            updateState();
+        }
+    };
+
+    /**
+     * Create a form of the fields. The field of security code is bound to the field of number.
+     *
+     * @param numberEditText field of card number
+     * @param dateEditText   field of expiration date
+     * @param cvcEditText    field of security code, or null if the form has no security code
+     */
+    public CreditCardForm(@NonNull CreditCardNumberEditText numberEditText, @NonNull CreditCardDateEditText dateEditText,
+                          @Nullable CreditCardCvcEditText cvcEditText) {
+        this.numberEditText = numberEditText;
+        this.dateEditText = dateEditText;
+        this.cvcEditText = cvcEditText;
+        listenerDispatcher.setDelay(ListenerDispatcher.NEXT_FRAME);
+
+        // 現在の状態から始め、以降は各入力欄の通知で差分だけを更新する
+        readState();
+        sentState = getState();
+
+        numberEditText.addBrandListener(brandListener);
+        numberEditText.addValidityListener(numberListener);
+        numberEditText.addSilentChangeCallback(silentChangeCallback);
+        dateEditText.addValidityListener(dateListener);
+        dateEditText.addSilentChangeCallback(silentChangeCallback);
+        if (cvcEditText != null) {
+            cvcEditText.setNumberEditText(numberEditText);
+            cvcEditText.addCvcListener(cvcListener);
+            cvcEditText.addSilentChangeCallback(silentChangeCallback);
+        }
+    }
+
+    /**
+     * 各入力欄から状態を読み込む
+     */
+    private void readState() {
+        cardBrand = numberEditText.getCardBrand();
+        numberValid = isNumberValid(cardBrand, numberEditText.getNumberDigits().length(), numberEditText.isLuhnValid());
+        expiryStatus = dateEditText.getExpiryStatus();
+        cvcValid = cvcEditText == null || cvcEditText.isValid();
+    }
+
+    /**
+     * 各入力欄から状態を読み直し、変わった場合はリスナーの呼び出しを要求する
+     */
+    private void updateState() {
+        final CardBrand oldBrand = cardBrand;
+        final boolean oldNumberValid = numberValid;
+        final ExpiryStatus oldExpiryStatus = expiryStatus;
+        final boolean oldCvcValid = cvcValid;
+        readState();
+        if (cardBrand != oldBrand || numberValid != oldNumberValid
+                || expiryStatus != oldExpiryStatus || cvcValid != oldCvcValid) {
+            invalidateState();
+        }
+    }
+
+    /**
+     * 桁数がブランドの範囲内で、チェックサムが正しいか否か
+     */
+    private static boolean isNumberValid(CardBrand brand, int length, boolean luhnValid) {
+        return luhnValid && length >= brand.getMinLength() && length <= brand.getMaxLength();
+    }
+
+    /**
+     * Unregister the form from the fields. A pending call of the listeners is cancelled.
+     */
+    public void release() {
+        listenerDispatcher.cancel();
+        numberEditText.removeBrandListener(brandListener);
+        numberEditText.removeValidityListener(numberListener);
+        numberEditText.removeSilentChangeCallback(silentChangeCallback);
+        dateEditText.removeValidityListener(dateListener);
+        dateEditText.removeSilentChangeCallback(silentChangeCallback);
+        if (cvcEditText != null) {
+            cvcEditText.removeCvcListener(cvcListener);
+            cvcEditText.removeSilentChangeCallback(silentChangeCallback);
+            cvcEditText.setNumberEditText(null);
+        }
+    }
+
+    /**
+     * Register a listener to receive the change of state
+     *
+     * @param listener added listener
+     */
+    public void addFormListener(CreditCardFormListener listener) {
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregister listener that registered by {@link #addFormListener}
+     *
+     * @param listener removed listener
+     */
+    public void removeFormListener(CreditCardFormListener listener) {
+        if (listeners != null) {
+            int i = listeners.indexOf(listener);
+            if (i >= 0) {
+                listeners.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Set when the listeners are called after a change of state.
+     * <p>
+     * By default the listeners are called once per frame, so the changes of several fields by an edit
+     * are delivered once. A pending call is made immediately when the delay is changed.
+     *
+     * @param delayMillis {@link FormattedDigitsEditText#DISPATCH_IMMEDIATELY}, {@link FormattedDigitsEditText#DISPATCH_NEXT_FRAME},
+     *                    or the quiet period in milliseconds
+     */
+    public void setListenerDispatchDelay(long delayMillis) {
+        listenerDispatcher.setDelay(delayMillis);
+    }
+
+    /**
+     * Return when the listeners are called after a change of state.
+     *
+     * @return the delay set by {@link #setListenerDispatchDelay(long)}
+     */
+    public long getListenerDispatchDelay() {
+        return listenerDispatcher.getDelay();
+    }
+
+    /**
+     * Return the latest state of the form.
+     *
+     * @return the state of the form
+     */
+    @NonNull
+    public CreditCardFormState getState() {
+        if (state == null) {
+            state = new CreditCardFormState(cardBrand, numberValid, expiryStatus, cvcValid);
+        }
+        return state;
+    }
+
+    /**
+     * Return whether all the fields are valid.
+     *
+     * @return true if all the fields are valid
+     */
+    public boolean isValid() {
+        return numberValid && expiryStatus == ExpiryStatus.VALID && cvcValid;
+    }
+
+    private void invalidateState() {
+        state = null;
+        listenerDispatcher.dispatch();
+    }
+
+    private void sendStateChanged() {
+        // 前回の通知から変わっていない場合は通知しない（同じフレーム内で元に戻った場合を含む）
+        final CreditCardFormState sent = sentState;
+        if (sent.getCardBrand() == cardBrand && sent.isNumberValid() == numberValid
+                && sent.getExpiryStatus() == expiryStatus && sent.isCvcValid() == cvcValid) {
+            return;
+        }
+        final CreditCardFormState state = getState();
+        sentState = state;
+        if (listeners == null) {
+            return;
+        }
+        final ArrayList<CreditCardFormListener> list = listeners;
+        final int count = list.size();
+        for (int i = 0; i < count; i++) {
+            list.get(i).onStateChanged(state);
+        }
+    }
+}
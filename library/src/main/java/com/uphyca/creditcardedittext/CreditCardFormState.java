@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+/**
+ * immutable state of {@link CreditCardForm} with the validity of each field
+ */
+public final class CreditCardFormState {
+
+    private final CardBrand cardBrand;
+    private final boolean numberValid;
+    private final ExpiryStatus expiryStatus;
+    private final boolean cvcValid;
+
+    public CreditCardFormState(@NonNull CardBrand cardBrand, boolean numberValid, @NonNull ExpiryStatus expiryStatus, boolean cvcValid) {
+        this.cardBrand = cardBrand;
+        this.numberValid = numberValid;
+        this.expiryStatus = expiryStatus;
+        this.cvcValid = cvcValid;
+    }
+
+    /**
+     * @return brand of the card number
+     */
+    @NonNull
+    public CardBrand getCardBrand() {
+        return cardBrand;
+    }
+
+    /**
+     * @return true if the length of the number matches the brand and the number passes the Luhn checksum
+     */
+    public boolean isNumberValid() {
+        return numberValid;
+    }
+
+    /**
+     * @return result of validating the expiration date against the current month
+     */
+    @NonNull
+    public ExpiryStatus getExpiryStatus() {
+        return expiryStatus;
+    }
+
+    /**
+     * @return true if the expiration date is valid
+     */
+    public boolean isDateValid() {
+        return expiryStatus == ExpiryStatus.VALID;
+    }
+
+    /**
+     * @return true if the security code is valid for the brand, or the form has no field of security code
+     */
+    public boolean isCvcValid() {
+        return cvcValid;
+    }
+
+    /**
+     * @return true if all the fields are valid
+     */
+    public boolean isValid() {
+        return numberValid && expiryStatus == ExpiryStatus.VALID && cvcValid;
+    }
+
+    @Override
+    public String toString() {
+        return "CreditCardFormState{cardBrand=" + cardBrand + ", numberValid=" + numberValid
+                + ", expiryStatus=" + expiryStatus + ", cvcValid=" + cvcValid + "}";
+    }
+}
@@ -18,67 +18,62 @@ package com.uphyca.creditcardedittext;
 
 import android.content.Context;
 import android.text.Editable;
-import android.text.InputFilter;
-import android.text.InputType;
-import android.text.Spanned;
-import android.text.TextUtils;
 import android.text.TextWatcher;
-import android.text.method.NumberKeyListener;
 import android.util.AttributeSet;
+import android.view.View;
 
 import androidx.annotation.NonNull;
-import androidx.appcompat.widget.AppCompatEditText;
 
 import java.util.ArrayList;
+import java.util.concurrent.Executor;
 
 /**
  * EditText for number of credit card.
  * <p>
  * Show formatted number according to the formats of issuing networks.
  * {@link #getBrand()} returns the issuing network related to card number.
- * Use {@link CreditCardNumberListener} to receive the change of card number.
+ * The brands and their formats are defined by {@link CardBrandRegistry}.
+ * Use {@link CreditCardNumberListener} to receive the change of card number. The listeners are called
+ * only when the digits or the brand change, and {@link CreditCardBrandListener} receives the transitions of brand.
+ * {@link #isLuhnValid()} and {@link CreditCardNumberValidityListener} tell whether the number passes
+ * the Luhn checksum.
  * <p>
  * If you register your own {@link TextWatcher} by {@link #addTextChangedListener}, you will
- * receive the change twice for user input and formatting.
+ * receive the change twice for user input and formatting, unless {@link #setFormatBeforeCommit(boolean)}
+ * is enabled.
+ * <p>
+ * {@link #setSeparatorSpansEnabled(boolean)} keeps only digits in the text and draws the separators,
+ * so an edit does not rewrite the text.
  */
-public class CreditCardNumberEditText extends AppCompatEditText {
+public class CreditCardNumberEditText extends FormattedDigitsEditText {
 
-    private static final char SEPARATOR = ' ';
+    private static final char SEPARATOR = CreditCardNumberFormatter.SEPARATOR;
     private static final String EMPTY = "";
     private ArrayList<CreditCardNumberListener> listeners;
+    private ArrayList<CreditCardNumberValidityListener> validityListeners;
+    private ArrayList<ExecutorListener<CreditCardNumberSnapshotListener>> snapshotListeners;
+    private ArrayList<CreditCardBrandListener> brandListeners;
+    private final CreditCardNumberFormatter formatter = (CreditCardNumberFormatter) getFormatter();
+    private final LuhnChecksum luhnChecksum = new LuhnChecksum();
+    private CardBrand changedBrand = formatter.getBrand(EMPTY, 0, 0);
+    private boolean changedLuhnValid;
+    // 最後に通知したブランド
+    private CardBrand sentBrand = changedBrand;
+    // 編集リビジョンごとにキャッシュしたブランド
+    private int cardBrandRevision = -1;
+    private CardBrandRegistry.Snapshot cardBrandSnapshot;
+    private CardBrand cardBrand;
 
     public CreditCardNumberEditText(Context context) {
-        super(context);
-        init();
+        super(context, new CreditCardNumberFormatter(), SEPARATOR);
     }
 
     public CreditCardNumberEditText(Context context, AttributeSet attrs) {
-        super(context, attrs);
-        init();
+        super(context, attrs, new CreditCardNumberFormatter(), SEPARATOR);
     }
 
     public CreditCardNumberEditText(Context context, AttributeSet attrs, int defStyleAttr) {
-        super(context, attrs, defStyleAttr);
-        init();
-    }
-
-    @Override
-    public final void setInputType(int type) {
-        super.setInputType(InputType.TYPE_NULL);
-    }
-
-    @Override
-    public final void setRawInputType(int type) {
-        super.setRawInputType(InputType.TYPE_CLASS_NUMBER);
-    }
-
-    private void init() {
-        super.setInputType(InputType.TYPE_NULL);
-        super.setRawInputType(InputType.TYPE_CLASS_NUMBER);
-        final InputFilter[] filters = {new CreditCardNumberKeyListener()};
-        setFilters(filters);
-
-        addTextChangedListener(textWatcher);
+        super(context, attrs, defStyleAttr, new CreditCardNumberFormatter(), SEPARATOR);
     }
 
     /**
@@ -105,267 +100,192 @@ public class CreditCardNumberEditText extends AppCompatEditText {
                 listeners.remove(i);
             }
         }
+        onListenerRemoved();
     }
 
-    private final TextWatcher textWatcher = new TextWatcher() {
-
-        // カーソル位置について
-        //
-        // セパレーターを挿入したぶん、カーソル位置を調整しなければならない。
-        // 以下にプログラムでカーソル位置を調整しない場合の挙動を参考として記す。
-        //
-        //    未入力状態から“424211102222”をペーストしたとき
-        //    Precondition: <>
-        //    Actual: 4242 1110 2222<>
-        //    Expected: 4242 1110 2222<>
-        //    Log:
-        //    beforeTextChanged(,0,0,12)
-        //    selectionStart=0, selectionEnd=0
-        //    onTextChanged(424211102222,0,0,12)
-        //    selectionStart=12, selectionEnd=12
-        //    afterTextChanged(424211102222)
-        //    selectionStart=12, selectionEnd=12
-        //    beforeTextChanged(424211102222,0,12,14)
-        //    selectionStart=12, selectionEnd=12
-        //    onTextChanged(4242 1110 2222,0,12,14)
-        //    selectionStart=14, selectionEnd=14
-        //    afterTextChanged(4242 1110 2222)
-        //    selectionStart=14, selectionEnd=14
-        //
-        //
-        //    “4242 1110 2222”が入力された状態でカーソルが末尾にあり、”3”を入力したとき
-        //    Precondition: 4242 1110 2222<>
-        //    Actual: 4242 1110 2222 3<>
-        //    Expected: 4242 1110 2222 3<>
-        //    Log:
-        //    beforeTextChanged(4242 1110 2222,14,0,1)
-        //    selectionStart=14, selectionEnd=14
-        //    onTextChanged(4242 1110 22223,14,0,1)
-        //    selectionStart=15, selectionEnd=15
-        //    afterTextChanged(4242 1110 22223)
-        //    selectionStart=15, selectionEnd=15
-        //    beforeTextChanged(4242 1110 22223,0,15,16)
-        //    selectionStart=15, selectionEnd=15
-        //    onTextChanged(4242 1110 2222 3,0,15,16)
-        //    selectionStart=16, selectionEnd=16
-        //    afterTextChanged(4242 1110 2222 3)
-        //    selectionStart=16, selectionEnd=16
-        //
-        //
-        //    “4242 1110 2222”が入力された状態でカーソルが9文字目(1110の0とセパレーターの間、”..1110<ここ> 2222…”)にあり、”3”を入力したとき
-        //    Precondition: 4242 1110<> 2222
-        //    Actual: 4242 1110 <>3222 2
-        //    Expected: 4242 1110 3<>222 2
-        //    Log:
-        //    beforeTextChanged(4242 1110 2222,9,0,1)
-        //    selectionStart=9, selectionEnd=9
-        //    onTextChanged(4242 11103 2222,9,0,1)
-        //    selectionStart=10, selectionEnd=10
-        //    afterTextChanged(4242 11103 2222)
-        //    selectionStart=10, selectionEnd=10
-        //    beforeTextChanged(4242 11103 2222,0,15,16)
-        //    selectionStart=10, selectionEnd=10
-        //    onTextChanged(4242 1110 3222 2,0,15,16)
-        //    selectionStart=10, selectionEnd=10
-        //    afterTextChanged(4242 1110 3222 2)
-        //    selectionStart=10, selectionEnd=10
-        //
-        //
-        //    “4242 1110 2222”が入力された状態でカーソルが9文字目(1110の0とセパレーターの間、”..1110<ここ> 2222…”)にあり、”33”をペーストしたとき
-        //    Precondition: 4242 1110<> 2222
-        //    Actual: 4242 1110 3<>322 22
-        //    Expected: 4242 1110 33<>22 22
-        //    Log:
-        //    beforeTextChanged(4242 1110 2222,9,0,2)
-        //    selectionStart=9, selectionEnd=9
-        //    onTextChanged(4242 111033 2222,9,0,2)
-        //    selectionStart=11, selectionEnd=11
-        //    afterTextChanged(4242 111033 2222)
-        //    selectionStart=11, selectionEnd=11
-        //    beforeTextChanged(4242 111033 2222,0,16,17)
-        //    selectionStart=11, selectionEnd=11
-        //    onTextChanged(4242 1110 3322 22,0,16,17)
-        //    selectionStart=11, selectionEnd=11
-        //    afterTextChanged(4242 1110 3322 22)
-        //    selectionStart=11, selectionEnd=11
-        //
-        //
-        //    “0”が入力された状態でカーソルが0文字目にあり、”424211102222321”をペーストしたとき
-        //    Precondition: <>0
-        //    Actual: 4242 1110 2222 32<>10
-        //    Expected: 4242 1110 2222 321<>0
-        //    Log:
-        //    beforeTextChanged(0,0,0,15)
-        //    selectionStart=0, selectionEnd=0
-        //    onTextChanged(4242111022223210,0,0,15)
-        //    selectionStart=15, selectionEnd=15
-        //    afterTextChanged(4242111022223210)
-        //    selectionStart=15, selectionEnd=15
-        //    beforeTextChanged(4242111022223210,0,16,19)
-        //    selectionStart=15, selectionEnd=15
-        //    onTextChanged(4242 1110 2222 3210,0,16,19)
-        //    selectionStart=17, selectionEnd=17
-        //    afterTextChanged(4242 1110 2222 3210)
-        //    selectionStart=17, selectionEnd=17
-
-        private String beforeText;
-        private int beforeSelectionStart;
-        private int beforeSelectionEnd;
-
-        @Override
-        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
-            beforeText = s.toString();
-            beforeSelectionStart = getSelectionStart();
-            beforeSelectionEnd = getSelectionEnd();
-        }
-
-        @Override
-        public void onTextChanged(CharSequence s, int start, int before, int count) {
-            // noop
+    /**
+     * Register a listener to receive the change of number with its validity
+     *
+     * @param listener added listener
+     */
+    public void addValidityListener(CreditCardNumberValidityListener listener) {
+        if (validityListeners == null) {
+            validityListeners = new ArrayList<>();
         }
+        validityListeners.add(listener);
+    }
 
-        @Override
-        public void afterTextChanged(Editable s) {
-            final String beforeCardNumber = removeSeparators(beforeText);
-            final int beforeRawLength = beforeText.length();
-
-            final String afterCardNumber = removeSeparators(s.toString());
-            final StringBuilder afterRawText = new StringBuilder(s);
-
-            boolean noSelection = beforeSelectionStart == beforeSelectionEnd;
-            // DELキーでの文字削除か否か
-            boolean deleteKeyEntered = noSelection // 範囲選択状態ではない
-                    && beforeSelectionStart > 1 // カーソルが1文字目より後（DELキーで削除でいる状態）だったか否か
-                    && getSelectionStart() == beforeSelectionStart - 1 // カーソルが一文字分前に来たか否か
-                    && getSelectionStart() == getSelectionEnd(); // 範囲選択状態ではない
-            // DELキーで削除されたのがセパレーターか否か
-            boolean separatorDeleted = deleteKeyEntered
-                    && beforeSelectionStart < beforeRawLength
-                    && equalsChatAt(beforeText, beforeSelectionStart - 1, SEPARATOR); // 削除されたのがセパレーターか否か
-            // セパレーターが削除されたら直前の文字を削除する
-            if (separatorDeleted) {
-                // セパレーター位置でスペースを入力後に連続したセパレーターの一つが削除された場合、
-                // DELキーによる削除とみなすとセパレーターの前の文字が意図せず消えるのを抑止する。
-                // Precondition:
-                //   "4242 1110<> 2"
-                // スペースを入力
-                //   "4242 1110 <> 2"
-                // 編集でスペースが整形される。
-                // この状態は"4242 1110 <> 2"からDELキーで削除した状態と変わらないので、セパレーターが連続しているかどうかで判断する
-                //   "4242 1110<> 2"
-                if (!equalsChatAt(beforeText, beforeSelectionStart, SEPARATOR)) {
-                    afterRawText.deleteCharAt(getSelectionStart() - 1);
-                }
+    /**
+     * Unregister listener that registered by {@link #addValidityListener}
+     *
+     * @param listener removed listener
+     */
+    public void removeValidityListener(CreditCardNumberValidityListener listener) {
+        if (validityListeners != null) {
+            int i = validityListeners.indexOf(listener);
+            if (i >= 0) {
+                validityListeners.remove(i);
             }
+        }
+        onListenerRemoved();
+    }
 
-            final CreditCardBrand brand = CreditCardBrand.getBrand(afterCardNumber);
-            // この後にseparatorを一括で挿入するので、すでに挿入済みのseparatorを削除しておく
-            removeSeparators(afterRawText, 0);
-            insertSeparator(afterRawText, brand, 0);
-
-            if (!TextUtils.equals(s, afterRawText)) {
-                s.replace(0, s.length(), afterRawText.toString());
-                // セパレーター挿入後にカーソル位置がずれるので調整する
-                StringBuilder beforeRawText = new StringBuilder(beforeText);
-                int selectionIndex = separatorDeleted ? beforeSelectionStart - 1 : beforeSelectionStart;
-                selectionIndex = removeSeparators(beforeRawText, selectionIndex);
-                selectionIndex = insertSeparator(beforeRawText, brand, selectionIndex);
-                selectionIndex = Math.min(selectionIndex, brand.getMaxLength() + brand.getSeparatorCount());
-                setSelection(selectionIndex);
-            } else {
-                // 編集完了時にだけリスナーを呼ぶ
-                sendNumberChanged(afterCardNumber, brand);
-            }
+    /**
+     * Register a listener to receive the change of brand.
+     * It is called only when the brand changes, before the listeners of number.
+     *
+     * @param listener added listener
+     */
+    public void addBrandListener(CreditCardBrandListener listener) {
+        if (brandListeners == null) {
+            brandListeners = new ArrayList<>();
         }
+        brandListeners.add(listener);
+    }
 
-        private void sendNumberChanged(String number, CreditCardBrand brand) {
-            if (listeners != null) {
-                final ArrayList<CreditCardNumberListener> list = listeners;
-                final int count = list.size();
-                for (int i = 0; i < count; i++) {
-                    list.get(i).onChanged(number, brand);
-                }
+    /**
+     * Unregister listener that registered by {@link #addBrandListener}
+     *
+     * @param listener removed listener
+     */
+    public void removeBrandListener(CreditCardBrandListener listener) {
+        if (brandListeners != null) {
+            int i = brandListeners.indexOf(listener);
+            if (i >= 0) {
+                brandListeners.remove(i);
             }
         }
-    };
+        onListenerRemoved();
+    }
 
-    private static class CreditCardNumberKeyListener extends NumberKeyListener {
-        private final char[] accepted = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', SEPARATOR};
+    /**
+     * Register a listener to receive the change of number on an executor.
+     * <p>
+     * Each change is delivered as an immutable {@link CreditCardNumberSnapshot}, so the listener
+     * can do heavy work off the main thread without delaying the input.
+     *
+     * @param executor executor to call the listener
+     * @param listener added listener
+     */
+    public void addNumberListener(@NonNull Executor executor, @NonNull CreditCardNumberSnapshotListener listener) {
+        if (snapshotListeners == null) {
+            snapshotListeners = new ArrayList<>();
+        }
+        snapshotListeners.add(new ExecutorListener<>(executor, listener));
+    }
 
-        @NonNull
-        @Override
-        protected char[] getAcceptedChars() {
-            return accepted;
+    /**
+     * Unregister listener that registered by {@link #addNumberListener(Executor, CreditCardNumberSnapshotListener)}
+     *
+     * @param listener removed listener
+     */
+    public void removeNumberListener(CreditCardNumberSnapshotListener listener) {
+        if (snapshotListeners != null) {
+            ExecutorListener.remove(snapshotListeners, listener);
         }
+        onListenerRemoved();
+    }
 
-        @Override
-        public CharSequence filter(CharSequence source, int start, int end, Spanned dest, int dstart, int dend) {
+    @Override
+    String getDefaultAutofillHint() {
+        return View.AUTOFILL_HINT_CREDIT_CARD_NUMBER;
+    }
 
-            // 入力文字（数字かどうか）をチェック
-            final CharSequence out = super.filter(source, start, end, dest, dstart, dend);
+    @Override
+    GroupFormat groupFormat(@NonNull CharSequence text) {
+        return formatter.getBrand(text, 0, text.length()).groupFormat();
+    }
 
-            if (TextUtils.equals(out, EMPTY)) {
-                return EMPTY;
-            }
+    @Override
+    void onEditSettled(@NonNull CharSequence text) {
+        // 編集完了時にだけチェックサムを更新し、まとめて呼び出す場合に備えて最新の状態を保持しておく
+        luhnChecksum.update(text, 0, text.length());
+        changedBrand = formatter.getBrand(text, 0, text.length());
+        changedLuhnValid = luhnChecksum.isValid();
+    }
 
-            if (out != null) {
-                source = out;
-                start = 0;
-                end = source.length();
+    @Override
+    boolean hasChanged(boolean digitsChanged) {
+        // 数字もブランドも前回の通知から変わっていない場合は通知しない
+        return digitsChanged || changedBrand != sentBrand;
+    }
+
+    @Override
+    void onChangeSuppressed() {
+        sentBrand = changedBrand;
+    }
+
+    @Override
+    boolean hasListeners() {
+        return (listeners != null && !listeners.isEmpty())
+                || (validityListeners != null && !validityListeners.isEmpty())
+                || (snapshotListeners != null && !snapshotListeners.isEmpty())
+                || (brandListeners != null && !brandListeners.isEmpty())
+                || super.hasListeners();
+    }
+
+    @Override
+    boolean cachesDigits() {
+        // 番号の複製をビューに残さないよう、番号の文字列はキャッシュしない
+        return false;
+    }
+
+    @Override
+    void notifyChanged(@NonNull CharSequence text, @NonNull CharSequence digits, long revision) {
+        final CardBrand cardBrand = changedBrand;
+        final CardBrand oldBrand = sentBrand;
+        sentBrand = cardBrand;
+        if (cardBrand != oldBrand && brandListeners != null) {
+            final ArrayList<CreditCardBrandListener> list = brandListeners;
+            final int count = list.size();
+            for (int i = 0; i < count; i++) {
+                list.get(i).onBrandChanged(oldBrand, cardBrand);
             }
+        }
+        sendNumberChanged(digits, cardBrand, revision);
+        super.notifyChanged(text, digits, revision);
+    }
 
-            //destにsourceをマージした文字列
-            final String tempRawText = new StringBuilder(dest)
-                    .replace(dstart, dend, source.subSequence(start, end).toString())
-                    .toString();
-            final String tempCardNumber = removeSeparators(tempRawText);
-            final CreditCardBrand tempBrand = CreditCardBrand.getBrand(tempCardNumber);
-
-            //ブランドごとの書式のセパレーター位置以外に入力されたセパレーターを除去する
-            final StringBuilder sourceBuf = new StringBuilder(source.subSequence(start, end));
-            for (int i = end - 1; i >= start; --i) {
-                if (sourceBuf.charAt(i) == SEPARATOR) {
-                    int index = i + dstart;
-                    if (!tempBrand.isSeparatorPosition(index)) {
-                        sourceBuf.deleteCharAt(i);
-                    }
-                }
+    private void sendNumberChanged(CharSequence digits, CardBrand cardBrand, long revision) {
+        final boolean hasListeners = listeners != null && !listeners.isEmpty();
+        final boolean hasValidityListeners = validityListeners != null && !validityListeners.isEmpty();
+        final boolean hasSnapshotListeners = snapshotListeners != null && !snapshotListeners.isEmpty();
+        if (!hasListeners && !hasValidityListeners && !hasSnapshotListeners) {
+            return;
+        }
+        // リスナーが登録されている場合にだけ番号の文字列を生成する
+        final String number = digits.toString();
+        final CreditCardBrand brand = cardBrand.getCreditCardBrand();
+        final boolean luhnValid = changedLuhnValid;
+        if (hasListeners) {
+            final ArrayList<CreditCardNumberListener> list = listeners;
+            final int count = list.size();
+            for (int i = 0; i < count; i++) {
+                list.get(i).onChanged(number, brand);
             }
-            if (!TextUtils.equals(source, sourceBuf)) {
-                source = sourceBuf;
-                start = 0;
-                end = source.length();
+        }
+        if (hasValidityListeners) {
+            final ArrayList<CreditCardNumberValidityListener> list = validityListeners;
+            final int count = list.size();
+            for (int i = 0; i < count; i++) {
+                list.get(i).onChanged(number, brand, luhnValid);
             }
-
-            // 入力文字数をチェック
-            final int maxLength = tempBrand.getMaxLength() + tempBrand.getSeparatorCount();
-            final CharSequence lengthOut = lengthFilter(maxLength, source, start, end, dest, dstart, dend);
-            return lengthOut == null ? source : lengthOut;
         }
-
-        // Taken from android.text.InputFilter.LengthFilter
-        private static CharSequence lengthFilter(int maxLength, CharSequence source, int start, int end, Spanned dest, int dstart, int dend) {
-            int keep = maxLength - (dest.length() - (dend - dstart));
-            if (keep <= 0) {
-                return EMPTY;
-            } else if (keep >= end - start) {
-                return null; // keep original
-            } else {
-                keep += start;
-                if (Character.isHighSurrogate(source.charAt(keep - 1))) {
-                    --keep;
-                    if (keep == start) {
-                        return EMPTY;
+        if (hasSnapshotListeners) {
+            // 全てのリスナーで同じスナップショットを共有する
+            final CreditCardNumberSnapshot snapshot = new CreditCardNumberSnapshot(number, brand, luhnValid, revision);
+            final ArrayList<ExecutorListener<CreditCardNumberSnapshotListener>> list = snapshotListeners;
+            final int count = list.size();
+            for (int i = 0; i < count; i++) {
+                final CreditCardNumberSnapshotListener listener = list.get(i).listener;
+                list.get(i).executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onChanged(snapshot);
                     }
-                }
-                return source.subSequence(start, keep);
+                });
             }
         }
-
-        @Override
-        public int getInputType() {
-            return InputType.TYPE_CLASS_NUMBER;
-        }
     }
 
     /**
@@ -375,88 +295,107 @@ public class CreditCardNumberEditText extends AppCompatEditText {
      */
     @NonNull
     public CreditCardBrand getBrand() {
-        return CreditCardBrand.getBrand(getNumber());
+        return getCardBrand().getCreditCardBrand();
     }
 
     /**
-     * Return the number of credit card (separator not included).
+     * Return the definition of the brand registered in {@link CardBrandRegistry}.
+     * Unlike {@link #getBrand()}, this also returns custom brands.
+     * The result is cached until the text or the definitions of brands change.
      *
-     * @return the number of credit card
+     * @return the definition of the brand of credit card
      */
     @NonNull
-    public String getNumber() {
+    public CardBrand getCardBrand() {
+        // ブランドの定義が差し替えられた場合も判定し直す
+        final CardBrandRegistry.Snapshot snapshot = CardBrandRegistry.getInstance().snapshot();
+        final int editRevision = getEditRevision();
+        if (cardBrandRevision != editRevision || cardBrandSnapshot != snapshot) {
+            final Editable text = getText();
+            cardBrand = text == null ? formatter.getBrand(EMPTY, 0, 0) : formatter.getBrand(text, 0, text.length());
+            cardBrandRevision = editRevision;
+            cardBrandSnapshot = snapshot;
+        }
+        return cardBrand;
+    }
+
+    /**
+     * Return whether the number passes the Luhn (mod 10) checksum.
+     * <p>
+     * The checksum is kept up to date incrementally while editing, so calling this is cheap.
+     *
+     * @return true if the number passes the Luhn checksum
+     */
+    public boolean isLuhnValid() {
         final Editable text = getText();
-        return removeSeparators(text == null ? "" : text.toString());
+        if (text == null) {
+            return false;
+        }
+        luhnChecksum.update(text, 0, text.length());
+        return luhnChecksum.isValid();
     }
 
     /**
-     * 文字列から全てのセパレーターを除去する
+     * Set the number of credit card at once.
+     * Characters other than digits are removed, and the digits are truncated to the maximum length of the brand.
+     * The number is formatted and committed in one change of the text, and the listeners are called once.
      *
-     * @param s 文字列
-     * @return セパレーター除去後の文字列
+     * @param number number of credit card
      */
-    @NonNull
-    private static String removeSeparators(String s) {
-        return s.replace(String.valueOf(SEPARATOR), EMPTY);
+    public void setNumber(@NonNull CharSequence number) {
+        setDigits(number, true);
     }
 
     /**
-     * 文字列から全てのセパレーターを除去する
+     * Set the number of credit card at once.
+     * Characters other than digits are removed, and the digits are truncated to the maximum length of the brand.
+     * The number is formatted and committed in one change of the text.
      *
-     * @param sb             文字列
-     * @param selectionIndex セパレーター除去前のカーソル位置
-     * @return セパレーター除去後のカーソル位置
+     * @param number number of credit card
+     * @param notify true to call the listeners once, false not to call them
+     * @see #setDigits(CharSequence, boolean)
      */
-    private static int removeSeparators(StringBuilder sb, int selectionIndex) {
-        int newSelection = selectionIndex;
-        for (int i = sb.length() - 1; i >= 0; i--) {
-            if (sb.charAt(i) == SEPARATOR) {
-                sb.deleteCharAt(i);
-                if (i < selectionIndex) {
-                    --newSelection;
-                }
-            }
-        }
-        return newSelection;
+    public void setNumber(@NonNull CharSequence number, boolean notify) {
+        setDigits(number, notify);
     }
 
     /**
-     * カード番号情報に対応する書式に従ってセパレーターを挿入する
+     * Return the number of credit card (separator not included).
+     * A new string is created for each call, so the field does not keep a copy of the number.
+     * Use {@link #getNumberDigits()} or {@link #getNumber(char[])} to read the number without a string.
      *
-     * @param sb             カード番号
-     * @param brand          カード番号情報
-     * @param selectionIndex カーソル位置
-     * @return セパレーター挿入後のカーソル位置
+     * @return the number of credit card
      */
-    private static int insertSeparator(StringBuilder sb, CreditCardBrand brand, int selectionIndex) {
-        int newSelectionIndex = selectionIndex;
-        final int[] format = brand.getFormat();
-        int i = 0;
-        for (int number : format) {
-            i += number;
-            if (sb.length() > i) {
-                sb.insert(i, SEPARATOR);
-                if (i <= newSelectionIndex) {
-                    ++newSelectionIndex;
-                }
-            } else {
-                break;
-            }
-            i++;
-        }
-        return newSelectionIndex;
+    @NonNull
+    public String getNumber() {
+        return getDigits();
+    }
+
+    /**
+     * Return the number of credit card as a live view of the text (separator not included).
+     * <p>
+     * The view reads the digits of the current text without copying them, and reflects later edits.
+     * Unlike {@link #getNumber()}, it leaves no copy of the number in the heap unless
+     * {@link CharSequence#toString()} or {@link CharSequence#subSequence} is called.
+     *
+     * @return the digits of the number
+     */
+    @NonNull
+    public CharSequence getNumberDigits() {
+        return getDigitsView();
     }
 
     /**
-     * 文字列中の指定位置の文字と、指定の文字を比較する。
-     * 指定位置が有効ではない場合はfalseを返す。
+     * Copy the number of credit card into an array (separator not included).
+     * <p>
+     * The caller can clear the array after use, so the number does not remain in the heap.
+     * An array of 19 characters is enough for every built-in brand.
      *
-     * @param s     文字列
-     * @param index 対象文字列中で比較する文字の位置
-     * @param c     比較文字
-     * @return 文字が同じ場合はtrue、それ以外はfalse
+     * @param dest array to receive the digits
+     * @return the number of digits copied
+     * @throws IllegalArgumentException if the array is shorter than the number
      */
-    private static boolean equalsChatAt(CharSequence s, int index, char c) {
-        return index < s.length() && s.charAt(index) == c;
+    public int getNumber(@NonNull char[] dest) {
+        return getDigits(dest);
     }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+/**
+ * immutable state of {@link CreditCardNumberEditText} at a change
+ * <p>
+ * The revision increases with each change of the view, so a listener running on another thread
+ * can discard the result computed from an older snapshot.
+ */
+public final class CreditCardNumberSnapshot {
+
+    private static final int VISIBLE_DIGITS = 4;
+    private static final String MASK = "****";
+
+    private final String number;
+    private final CreditCardBrand brand;
+    private final boolean luhnValid;
+    private final long revision;
+
+    public CreditCardNumberSnapshot(@NonNull String number, @NonNull CreditCardBrand brand, boolean luhnValid, long revision) {
+        this.number = number;
+        this.brand = brand;
+        this.luhnValid = luhnValid;
+        this.revision = revision;
+    }
+
+    /**
+     * @return number of credit card (separator not included)
+     */
+    @NonNull
+    public String getNumber() {
+        return number;
+    }
+
+    /**
+     * @return brand of credit card
+     */
+    @NonNull
+    public CreditCardBrand getBrand() {
+        return brand;
+    }
+
+    /**
+     * @return true if the number passes the Luhn checksum
+     */
+    public boolean isLuhnValid() {
+        return luhnValid;
+    }
+
+    /**
+     * @return revision of the change, increasing with each change of the view
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Return a description of the snapshot for logging.
+     * The number is masked except for its last 4 digits.
+     */
+    @Override
+    public String toString() {
+        return "CreditCardNumberSnapshot{number=" + mask(number) + ", brand=" + brand + ", luhnValid=" + luhnValid + ", revision=" + revision + "}";
+    }
+
+    /**
+     * ログに番号が残らないよう、末尾4桁以外を伏せる（4桁以下の場合は全て伏せる）
+     */
+    private static String mask(String number) {
+        final int length = number.length();
+        return length > VISIBLE_DIGITS ? MASK + number.substring(length - VISIBLE_DIGITS) : MASK;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import android.content.Context;
+import android.util.AttributeSet;
+
+import androidx.annotation.NonNull;
+
+/**
+ * EditText for digits formatted by a {@link DigitsTemplate}, such as a postal code.
+ * <p>
+ * Show formatted digits according to the template set by {@link #setFormatTemplate(DigitsTemplate)}.
+ * Until a template is set, the field accepts any number of digits without separators.
+ */
+public class DigitsEditText extends FormattedDigitsEditText {
+
+    public DigitsEditText(Context context) {
+        super(context, DigitsTemplate.DIGITS);
+    }
+
+    public DigitsEditText(Context context, AttributeSet attrs) {
+        super(context, attrs, DigitsTemplate.DIGITS);
+    }
+
+    public DigitsEditText(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr, DigitsTemplate.DIGITS);
+    }
+
+    /**
+     * Set the template to format the digits.
+     * The current digits are formatted again with the template, and the digits not allowed by it are removed.
+     *
+     * @param template template to format the digits
+     */
+    public void setFormatTemplate(@NonNull DigitsTemplate template) {
+        applyTemplate(template);
+    }
+
+    /**
+     * Return the template to format the digits.
+     *
+     * @return the template
+     */
+    @NonNull
+    @Override
+    public DigitsTemplate getFormatTemplate() {
+        return super.getFormatTemplate();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Executorで呼び出すリスナーとExecutorの組
+ */
+final class ExecutorListener<L> {
+
+    final Executor executor;
+    final L listener;
+
+    ExecutorListener(@NonNull Executor executor, @NonNull L listener) {
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /**
+     * リストからリスナーを削除する
+     *
+     * @return 削除した場合はtrue
+     */
+    static <L> boolean remove(List<ExecutorListener<L>> list, L listener) {
+        final int count = list.size();
+        for (int i = 0; i < count; i++) {
+            if (list.get(i).listener.equals(listener)) {
+                list.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+}
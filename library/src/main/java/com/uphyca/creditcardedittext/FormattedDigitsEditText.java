@@ -0,0 +1,963 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import android.content.Context;
+import android.os.Build;
+import android.text.Editable;
+import android.text.InputFilter;
+import android.text.InputType;
+import android.text.Spanned;
+import android.text.TextUtils;
+import android.text.TextWatcher;
+import android.text.method.NumberKeyListener;
+import android.util.AttributeSet;
+import android.view.autofill.AutofillValue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.appcompat.widget.AppCompatEditText;
+
+import java.util.ArrayList;
+
+/**
+ * Base of the EditTexts for formatted digits: {@link CreditCardNumberEditText}, {@link CreditCardDateEditText},
+ * {@link CreditCardCvcEditText} and {@link DigitsEditText}.
+ * <p>
+ * Each subclass defines its format. {@link #getDigits()} returns the digits without separators.
+ * Use {@link FormattedDigitsListener} to receive the change of digits. The listeners are called
+ * only when the digits change.
+ * <p>
+ * If you register your own {@link TextWatcher} by {@link #addTextChangedListener}, you will
+ * receive the change twice for user input and formatting, unless {@link #setFormatBeforeCommit(boolean)}
+ * is enabled.
+ * <p>
+ * {@link #setSeparatorSpansEnabled(boolean)} keeps only digits in the text and draws the separators,
+ * so an edit does not rewrite the text.
+ */
+public abstract class FormattedDigitsEditText extends AppCompatEditText {
+
+    /**
+     * Call the listeners on each change of digits.
+     *
+     * @see #setListenerDispatchDelay(long)
+     */
+    public static final long DISPATCH_IMMEDIATELY = ListenerDispatcher.IMMEDIATE;
+
+    /**
+     * Call the listeners once per frame with the latest digits.
+     * Before API level 16, they are called after the pending messages of the main thread instead.
+     *
+     * @see #setListenerDispatchDelay(long)
+     */
+    public static final long DISPATCH_NEXT_FRAME = ListenerDispatcher.NEXT_FRAME;
+
+    private static final String EMPTY = "";
+
+    private EditFormatter formatter;
+    private DigitsTemplate template;
+    private char separator;
+    private SeparatorSpans separatorSpans;
+    private boolean formatBeforeCommit;
+    private boolean separatorSpansEnabled;
+    private ArrayList<FormattedDigitsListener> digitsListeners;
+    private long revision;
+    // 最後に通知した数字（リスナーが登録されている間だけ保持する）
+    private final StringBuilder sentDigits = new StringBuilder();
+    // 文字列が変わるたびに増える編集リビジョンと、リビジョンごとにキャッシュした数字
+    private int editRevision;
+    private int digitsRevision = -1;
+    private String digits;
+    private final DigitsView digitsView = new DigitsView();
+    // まとめて設定する値の整形結果（使う場合にだけ生成する）
+    private EditResult importResult;
+    // リスナーを呼ばずに値を設定している最中か否かと、その場合に連動する部品の状態を合わせるコールバック
+    private boolean silent;
+    private ArrayList<Runnable> silentChangeCallbacks;
+
+    private final Editable.Factory editableFactory = new Editable.Factory() {
+        @Override
+        public Editable newEditable(CharSequence source) {
+            return new FormattedEditable(source, formatter, formatBeforeCommit && !separatorSpansEnabled);
+        }
+    };
+    private final ListenerDispatcher listenerDispatcher = new ListenerDispatcher(new Runnable() {
+        @Override
+        public void run() {
+            sendChanged();
+        }
+    });
+
+    /**
+     * テンプレートで整形するサブクラス向けのコンストラクタ
+     *
+     * @param template 書式のテンプレート
+     */
+    FormattedDigitsEditText(Context context, DigitsTemplate template) {
+        super(context);
+        init(template);
+    }
+
+    FormattedDigitsEditText(Context context, AttributeSet attrs, DigitsTemplate template) {
+        super(context, attrs);
+        init(template);
+    }
+
+    FormattedDigitsEditText(Context context, AttributeSet attrs, int defStyleAttr, DigitsTemplate template) {
+        super(context, attrs, defStyleAttr);
+        init(template);
+    }
+
+    /**
+     * 独自の書式エンジンで整形するサブクラス向けのコンストラクタ
+     *
+     * @param formatter 書式エンジン
+     * @param separator 書式エンジンが挿入するセパレーター
+     */
+    FormattedDigitsEditText(Context context, EditFormatter formatter, char separator) {
+        super(context);
+        init(formatter, separator);
+    }
+
+    FormattedDigitsEditText(Context context, AttributeSet attrs, EditFormatter formatter, char separator) {
+        super(context, attrs);
+        init(formatter, separator);
+    }
+
+    FormattedDigitsEditText(Context context, AttributeSet attrs, int defStyleAttr, EditFormatter formatter, char separator) {
+        super(context, attrs, defStyleAttr);
+        init(formatter, separator);
+    }
+
+    @Override
+    public final void setInputType(int type) {
+        super.setInputType(InputType.TYPE_NULL);
+    }
+
+    @Override
+    public final void setRawInputType(int type) {
+        super.setRawInputType(InputType.TYPE_CLASS_NUMBER);
+    }
+
+    private void init(DigitsTemplate template) {
+        this.template = template;
+        init(new DigitsFormatter(template), template.getSeparator());
+    }
+
+    private void init(EditFormatter formatter, char separator) {
+        super.setInputType(InputType.TYPE_NULL);
+        super.setRawInputType(InputType.TYPE_CLASS_NUMBER);
+        setFormatter(formatter, separator);
+        // 入力前に整形できるよう、Editableを差し替える
+        setEditableFactory(editableFactory);
+        setText(getText());
+
+        addTextChangedListener(textWatcher);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            setDefaultAutofillHints();
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.O)
+    private void setDefaultAutofillHints() {
+        // レイアウトで指定されたヒントを優先する
+        final String hint = getDefaultAutofillHint();
+        if (hint != null && getAutofillHints() == null) {
+            setAutofillHints(hint);
+        }
+    }
+
+    private void setFormatter(EditFormatter formatter, char separator) {
+        this.formatter = formatter;
+        this.separator = separator;
+        this.separatorSpans = new SeparatorSpans(separator);
+        setFilters(new InputFilter[]{new FormattedDigitsKeyListener(formatter, separator, !separatorSpansEnabled)});
+    }
+
+    /**
+     * 書式のテンプレートを差し替え、現在の数字を新しい書式で設定し直す
+     *
+     * @param template 書式のテンプレート
+     */
+    void applyTemplate(@NonNull DigitsTemplate template) {
+        final String digits = getDigits();
+        final int selectionStart = getSelectionStart();
+        final int selectionEnd = getSelectionEnd();
+        this.template = template;
+        setFormatter(new DigitsFormatter(template), template.getSeparator());
+        // 現在の数字を新しい書式で設定し直す（新しいEditableが書式エンジンを参照する）
+        setText(digits);
+        // 入力中のカーソルを末尾へ動かさないよう、選択範囲を新しい長さに収めて戻す
+        final int length = length();
+        if (selectionStart < 0) {
+            setSelection(length);
+        } else {
+            setSelection(Math.min(selectionStart, length), Math.min(selectionEnd, length));
+        }
+    }
+
+    /**
+     * Return the template to format the digits.
+     *
+     * @return the template, or null if the field defines its own format
+     */
+    @Nullable
+    public DigitsTemplate getFormatTemplate() {
+        return template;
+    }
+
+    /**
+     * Register a listener to receive the change of digits
+     *
+     * @param listener added listener
+     */
+    public void addDigitsListener(FormattedDigitsListener listener) {
+        if (digitsListeners == null) {
+            digitsListeners = new ArrayList<>();
+        }
+        digitsListeners.add(listener);
+    }
+
+    /**
+     * Unregister listener that registered by {@link #addDigitsListener}
+     *
+     * @param listener removed listener
+     */
+    public void removeDigitsListener(FormattedDigitsListener listener) {
+        if (digitsListeners != null) {
+            int i = digitsListeners.indexOf(listener);
+            if (i >= 0) {
+                digitsListeners.remove(i);
+            }
+        }
+        onListenerRemoved();
+    }
+
+    /**
+     * Return the revision of the latest change.
+     * A snapshot with a smaller revision is stale.
+     *
+     * @return the revision of the latest change
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Set whether each edit is formatted before it is committed to the text.
+     * <p>
+     * By default, the input is committed first and then replaced with the formatted text,
+     * so {@link TextWatcher}s receive each edit twice. When enabled, the formatted text is committed
+     * at once and {@link TextWatcher}s receive each edit once.
+     *
+     * @param enabled true to format each edit before it is committed
+     */
+    public void setFormatBeforeCommit(boolean enabled) {
+        formatBeforeCommit = enabled;
+        updateEditable();
+    }
+
+    /**
+     * Return whether each edit is formatted before it is committed to the text.
+     *
+     * @return true if each edit is formatted before it is committed
+     * @see #setFormatBeforeCommit(boolean)
+     */
+    public boolean isFormatBeforeCommit() {
+        return formatBeforeCommit;
+    }
+
+    /**
+     * Set whether separators are drawn by spans instead of being inserted into the text.
+     * <p>
+     * When enabled, the text holds only digits, and each separator is drawn in front of the first digit
+     * of the next group. An edit does not rewrite the text, and {@link #getText()} returns only digits.
+     *
+     * @param enabled true to draw separators by spans
+     */
+    public void setSeparatorSpansEnabled(boolean enabled) {
+        if (separatorSpansEnabled == enabled) {
+            return;
+        }
+        final String digits = getDigits();
+        if (!enabled) {
+            // 描画していたセパレーターのスパンを除去する
+            final Editable text = getText();
+            if (text != null) {
+                separatorSpans.clear(text);
+            }
+        }
+        separatorSpansEnabled = enabled;
+        updateEditable();
+        setFilters(new InputFilter[]{new FormattedDigitsKeyListener(formatter, separator, !enabled)});
+        // 現在の数字を新しい形式で設定し直す
+        setText(digits);
+        setSelection(length());
+    }
+
+    /**
+     * Return whether separators are drawn by spans instead of being inserted into the text.
+     *
+     * @return true if separators are drawn by spans
+     * @see #setSeparatorSpansEnabled(boolean)
+     */
+    public boolean isSeparatorSpansEnabled() {
+        return separatorSpansEnabled;
+    }
+
+    /**
+     * Set when the listeners are called after a change.
+     * <p>
+     * By default the listeners are called on each change. {@link #DISPATCH_NEXT_FRAME} calls them once
+     * per frame, and a positive value calls them once the text has not changed for the period, so a
+     * paste or a burst of input calls them only once. The listeners always receive the latest value,
+     * and a pending call is made immediately when the view is detached or the delay is changed.
+     *
+     * @param delayMillis {@link #DISPATCH_IMMEDIATELY}, {@link #DISPATCH_NEXT_FRAME}, or the quiet period in milliseconds
+     */
+    public void setListenerDispatchDelay(long delayMillis) {
+        listenerDispatcher.setDelay(delayMillis);
+    }
+
+    /**
+     * Return when the listeners are called after a change.
+     *
+     * @return the delay set by {@link #setListenerDispatchDelay(long)}
+     */
+    public long getListenerDispatchDelay() {
+        return listenerDispatcher.getDelay();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        // 保留中の変更を取りこぼさないよう、切り離される前に通知する
+        listenerDispatcher.flush();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * Fill the field with a value from the autofill service.
+     * A text value is normalized and formatted at once, and the listeners are called once.
+     */
+    @RequiresApi(Build.VERSION_CODES.O)
+    @Override
+    public void autofill(AutofillValue value) {
+        if (value != null && value.isText()) {
+            setDigits(value.getTextValue());
+            return;
+        }
+        super.autofill(value);
+    }
+
+    private void updateEditable() {
+        final Editable text = getText();
+        if (text instanceof FormattedEditable) {
+            ((FormattedEditable) text).setEnabled(formatBeforeCommit && !separatorSpansEnabled);
+        }
+    }
+
+    /**
+     * Return the digits (separator not included).
+     * The result is cached until the text changes, except in {@link CreditCardNumberEditText}.
+     *
+     * @return the digits
+     */
+    @NonNull
+    public String getDigits() {
+        if (!cachesDigits()) {
+            final Editable text = getText();
+            return text == null ? EMPTY : TextEdits.removeSeparators(text, 0, text.length(), separator);
+        }
+        if (digitsRevision != editRevision) {
+            final Editable text = getText();
+            digits = text == null ? EMPTY : TextEdits.removeSeparators(text, 0, text.length(), separator);
+            digitsRevision = editRevision;
+        }
+        return digits;
+    }
+
+    /**
+     * Copy the digits into an array (separator not included).
+     * <p>
+     * The caller can clear the array after use, so the digits do not remain in the heap.
+     *
+     * @param dest array to receive the digits
+     * @return the number of digits copied
+     * @throws IllegalArgumentException if the array is shorter than the digits
+     */
+    public int getDigits(@NonNull char[] dest) {
+        final Editable text = getText();
+        if (text == null) {
+            return 0;
+        }
+        final int length = text.length();
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (c == separator) {
+                continue;
+            }
+            if (count == dest.length) {
+                throw new IllegalArgumentException("dest is shorter than the digits");
+            }
+            dest[count++] = c;
+        }
+        return count;
+    }
+
+    /**
+     * Set the digits at once. Characters other than digits are removed, the digits not allowed by the format
+     * are dropped, and the result is formatted and committed in one change of the text.
+     * The listeners are called once.
+     *
+     * @param digits digits to set
+     */
+    public void setDigits(@NonNull CharSequence digits) {
+        setDigits(digits, true);
+    }
+
+    /**
+     * Set the digits at once. Characters other than digits are removed, the digits not allowed by the format
+     * are dropped, and the result is formatted and committed in one change of the text.
+     * <p>
+     * If {@code notify} is false, the listeners are not called for the change. A pending call for the earlier
+     * changes is made before the change.
+     * A bound {@link CreditCardCvcEditText} or {@link CreditCardForm} still follows the new value.
+     *
+     * @param digits digits to set
+     * @param notify true to call the listeners once, false not to call them
+     */
+    public void setDigits(@NonNull CharSequence digits, boolean notify) {
+        // 入力と同じくフィルターとTextWatcherでの整形を通すと置換が二回になるので、書式エンジンで一度だけ検証、
+        // 切り詰め、整形した文字列を、フィルターを外して一回の置換で反映する
+        final Editable text = getText();
+        if (!(text instanceof FormattedEditable)) {
+            setText(digits);
+            return;
+        }
+        if (!notify) {
+            // それまでの変更は通知しておく
+            listenerDispatcher.flush();
+        }
+        final CharSequence formatted = formatImport(digits);
+        silent = !notify;
+        try {
+            ((FormattedEditable) text).commit(formatted);
+        } finally {
+            silent = false;
+        }
+        setSelection(text.length());
+        if (!notify) {
+            // 設定した値を通知済みとする
+            if (hasListeners()) {
+                TextEdits.updateDigits(text, separator, sentDigits);
+            }
+            onChangeSuppressed();
+            if (silentChangeCallbacks != null) {
+                final ArrayList<Runnable> list = silentChangeCallbacks;
+                final int count = list.size();
+                for (int i = 0; i < count; i++) {
+                    list.get(i).run();
+                }
+            }
+        }
+    }
+
+    /**
+     * リスナーを呼ばずに値を設定したときに呼ばれる。サブクラスは通知済みの状態を現在の状態に合わせる
+     */
+    void onChangeSuppressed() {
+    }
+
+    /**
+     * リスナーを呼ばずに値を設定したときに、連動する部品の状態を合わせるコールバックを登録する
+     *
+     * @param callback 登録するコールバック
+     */
+    void addSilentChangeCallback(@NonNull Runnable callback) {
+        if (silentChangeCallbacks == null) {
+            silentChangeCallbacks = new ArrayList<>();
+        }
+        silentChangeCallbacks.add(callback);
+    }
+
+    /**
+     * {@link #addSilentChangeCallback}で登録したコールバックを解除する
+     *
+     * @param callback 解除するコールバック
+     */
+    void removeSilentChangeCallback(@NonNull Runnable callback) {
+        if (silentChangeCallbacks != null) {
+            silentChangeCallbacks.remove(callback);
+        }
+    }
+
+    private CharSequence formatImport(CharSequence source) {
+        CharSequence digits = source;
+        if (digits.length() == 1) {
+            // 一文字の入力は数字であることを書式エンジンが前提とするので、先に検証する
+            final char c = TextEdits.normalizeDigit(digits.charAt(0));
+            digits = c == 0 ? EMPTY : String.valueOf(c);
+        }
+        // 複数文字の入力と同じく、数字以外の除去と切り詰めを一回の走査で行う
+        final CharSequence filtered = formatter.filterDigits(digits, 0, digits.length(), EMPTY, 0, 0);
+        if (filtered != null) {
+            digits = filtered;
+        }
+        if (separatorSpansEnabled) {
+            return digits;
+        }
+        if (importResult == null) {
+            importResult = new EditResult();
+        }
+        final int length = digits.length();
+        return formatter.format(EMPTY, 0, 0, digits, length, length, importResult) ? importResult.text : digits;
+    }
+
+    /**
+     * 自動入力のヒントの既定値を返す。レイアウトでヒントが指定されていない場合に設定する
+     *
+     * @return ヒント、または設定しない場合はnull
+     */
+    @Nullable
+    String getDefaultAutofillHint() {
+        return null;
+    }
+
+    /**
+     * 書式エンジンを返す
+     */
+    @NonNull
+    EditFormatter getFormatter() {
+        return formatter;
+    }
+
+    /**
+     * 現在の文字列からセパレーターを除いた数字を、コピーせずに参照するビューを返す
+     */
+    @NonNull
+    CharSequence getDigitsView() {
+        return digitsView;
+    }
+
+    /**
+     * 文字列が変わるたびに増える編集リビジョンを返す（サブクラスのキャッシュの無効化に使う）
+     */
+    int getEditRevision() {
+        return editRevision;
+    }
+
+    /**
+     * 表示上の書式を返す。セパレーターのスパンの位置に使う
+     *
+     * @param text 現在の文字列
+     */
+    @NonNull
+    GroupFormat groupFormat(@NonNull CharSequence text) {
+        return template == null ? GroupFormat.NONE : template.groupFormat();
+    }
+
+    /**
+     * 編集が完了した（整形し直す必要がない）ときに呼ばれる。リスナーの呼び出しを要求する前に状態を更新する
+     *
+     * @param text 整形済みの文字列
+     */
+    void onEditSettled(@NonNull CharSequence text) {
+    }
+
+    /**
+     * 文字列以外の状態が変わったときに、リスナーの呼び出しを要求する
+     */
+    void dispatchChanged() {
+        listenerDispatcher.dispatch();
+    }
+
+    /**
+     * 前回の通知から変更があったか否かを返す
+     *
+     * @param digitsChanged 数字が変わった場合はtrue
+     */
+    boolean hasChanged(boolean digitsChanged) {
+        return digitsChanged;
+    }
+
+    /**
+     * リスナーに変更を通知する。サブクラスは独自のリスナーを呼んでから、このメソッドを呼ぶ
+     *
+     * @param text     現在の文字列
+     * @param digits   数字（セパレーターを含まない）。呼び出し後に書き換えられる
+     * @param revision 変更のリビジョン
+     */
+    void notifyChanged(@NonNull CharSequence text, @NonNull CharSequence digits, long revision) {
+        if (digitsListeners == null || digitsListeners.isEmpty()) {
+            return;
+        }
+        final String value = digits.toString();
+        final ArrayList<FormattedDigitsListener> list = digitsListeners;
+        final int count = list.size();
+        for (int i = 0; i < count; i++) {
+            list.get(i).onChanged(value);
+        }
+    }
+
+    /**
+     * {@link #getDigits()}の結果を編集リビジョンごとにキャッシュするか否かを返す
+     */
+    boolean cachesDigits() {
+        return true;
+    }
+
+    /**
+     * リスナーが登録されているか否かを返す。サブクラスは独自のリスナーも含めて返す
+     */
+    boolean hasListeners() {
+        return digitsListeners != null && !digitsListeners.isEmpty();
+    }
+
+    /**
+     * リスナーが解除されたときに呼ぶ。リスナーがなくなった場合は、通知済みの数字を消去する
+     */
+    void onListenerRemoved() {
+        if (!hasListeners()) {
+            clearSentDigits();
+        }
+    }
+
+    private void clearSentDigits() {
+        // 長さを戻すだけでは内部の配列に数字が残るので、容量いっぱいまで'\0'で上書きしてから空にする
+        sentDigits.setLength(0);
+        sentDigits.setLength(sentDigits.capacity());
+        sentDigits.setLength(0);
+    }
+
+    private void sendChanged() {
+        // 通知先がない場合は、数字の複製を保持しない
+        if (!hasListeners()) {
+            return;
+        }
+        // まとめて呼び出す場合に備えて、呼び出し時点の文字列から求める
+        final Editable text = getText();
+        final CharSequence current = text == null ? EMPTY : text;
+        // 前回の通知から変わっていない場合は通知しない
+        final boolean digitsChanged = TextEdits.updateDigits(current, separator, sentDigits);
+        if (!hasChanged(digitsChanged)) {
+            return;
+        }
+        final long revision = ++this.revision;
+        notifyChanged(current, sentDigits, revision);
+    }
+
+    private final TextWatcher textWatcher = new TextWatcher() {
+
+        // カーソル位置について
+        //
+        // セパレーターを挿入したぶん、カーソル位置を調整しなければならない。
+        // 以下にプログラムでカーソル位置を調整しない場合の挙動を参考として記す。
+        //
+        //    未入力状態から“424211102222”をペーストしたとき
+        //    Precondition: <>
+        //    Actual: 4242 1110 2222<>
+        //    Expected: 4242 1110 2222<>
+        //    Log:
+        //    beforeTextChanged(,0,0,12)
+        //    selectionStart=0, selectionEnd=0
+        //    onTextChanged(424211102222,0,0,12)
+        //    selectionStart=12, selectionEnd=12
+        //    afterTextChanged(424211102222)
+        //    selectionStart=12, selectionEnd=12
+        //    beforeTextChanged(424211102222,0,12,14)
+        //    selectionStart=12, selectionEnd=12
+        //    onTextChanged(4242 1110 2222,0,12,14)
+        //    selectionStart=14, selectionEnd=14
+        //    afterTextChanged(4242 1110 2222)
+        //    selectionStart=14, selectionEnd=14
+        //
+        //
+        //    “4242 1110 2222”が入力された状態でカーソルが末尾にあり、”3”を入力したとき
+        //    Precondition: 4242 1110 2222<>
+        //    Actual: 4242 1110 2222 3<>
+        //    Expected: 4242 1110 2222 3<>
+        //    Log:
+        //    beforeTextChanged(4242 1110 2222,14,0,1)
+        //    selectionStart=14, selectionEnd=14
+        //    onTextChanged(4242 1110 22223,14,0,1)
+        //    selectionStart=15, selectionEnd=15
+        //    afterTextChanged(4242 1110 22223)
+        //    selectionStart=15, selectionEnd=15
+        //    beforeTextChanged(4242 1110 22223,0,15,16)
+        //    selectionStart=15, selectionEnd=15
+        //    onTextChanged(4242 1110 2222 3,0,15,16)
+        //    selectionStart=16, selectionEnd=16
+        //    afterTextChanged(4242 1110 2222 3)
+        //    selectionStart=16, selectionEnd=16
+        //
+        //
+        //    “4242 1110 2222”が入力された状態でカーソルが9文字目(1110の0とセパレーターの間、”..1110<ここ> 2222…”)にあり、”3”を入力したとき
+        //    Precondition: 4242 1110<> 2222
+        //    Actual: 4242 1110 <>3222 2
+        //    Expected: 4242 1110 3<>222 2
+        //    Log:
+        //    beforeTextChanged(4242 1110 2222,9,0,1)
+        //    selectionStart=9, selectionEnd=9
+        //    onTextChanged(4242 11103 2222,9,0,1)
+        //    selectionStart=10, selectionEnd=10
+        //    afterTextChanged(4242 11103 2222)
+        //    selectionStart=10, selectionEnd=10
+        //    beforeTextChanged(4242 11103 2222,0,15,16)
+        //    selectionStart=10, selectionEnd=10
+        //    onTextChanged(4242 1110 3222 2,0,15,16)
+        //    selectionStart=10, selectionEnd=10
+        //    afterTextChanged(4242 1110 3222 2)
+        //    selectionStart=10, selectionEnd=10
+        //
+        //
+        //    “4242 1110 2222”が入力された状態でカーソルが9文字目(1110の0とセパレーターの間、”..1110<ここ> 2222…”)にあり、”33”をペーストしたとき
+        //    Precondition: 4242 1110<> 2222
+        //    Actual: 4242 1110 3<>322 22
+        //    Expected: 4242 1110 33<>22 22
+        //    Log:
+        //    beforeTextChanged(4242 1110 2222,9,0,2)
+        //    selectionStart=9, selectionEnd=9
+        //    onTextChanged(4242 111033 2222,9,0,2)
+        //    selectionStart=11, selectionEnd=11
+        //    afterTextChanged(4242 111033 2222)
+        //    selectionStart=11, selectionEnd=11
+        //    beforeTextChanged(4242 111033 2222,0,16,17)
+        //    selectionStart=11, selectionEnd=11
+        //    onTextChanged(4242 1110 3322 22,0,16,17)
+        //    selectionStart=11, selectionEnd=11
+        //    afterTextChanged(4242 1110 3322 22)
+        //    selectionStart=11, selectionEnd=11
+        //
+        //
+        //    “0”が入力された状態でカーソルが0文字目にあり、”424211102222321”をペーストしたとき
+        //    Precondition: <>0
+        //    Actual: 4242 1110 2222 32<>10
+        //    Expected: 4242 1110 2222 321<>0
+        //    Log:
+        //    beforeTextChanged(0,0,0,15)
+        //    selectionStart=0, selectionEnd=0
+        //    onTextChanged(4242111022223210,0,0,15)
+        //    selectionStart=15, selectionEnd=15
+        //    afterTextChanged(4242111022223210)
+        //    selectionStart=15, selectionEnd=15
+        //    beforeTextChanged(4242111022223210,0,16,19)
+        //    selectionStart=15, selectionEnd=15
+        //    onTextChanged(4242 1110 2222 3210,0,16,19)
+        //    selectionStart=17, selectionEnd=17
+        //    afterTextChanged(4242 1110 2222 3210)
+        //    selectionStart=17, selectionEnd=17
+
+        // キー入力ごとに文字列を生成しないよう、作業用のバッファを使いまわす
+        private final StringBuilder beforeText = new StringBuilder();
+        private final EditResult result = new EditResult();
+        private int beforeSelectionStart;
+        private int beforeSelectionEnd;
+
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            beforeText.setLength(0);
+            beforeText.append(s);
+            beforeSelectionStart = getSelectionStart();
+            beforeSelectionEnd = getSelectionEnd();
+        }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+            // 数字などのキャッシュを無効にする
+            editRevision++;
+        }
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            if (separatorSpansEnabled) {
+                // 数字だけを保持する場合は、文字列を書き換えずにセパレーターのスパンを設定し直す
+                separatorSpans.apply(s, groupFormat(s));
+                onEditSettled(s);
+                if (!silent) {
+                    listenerDispatcher.dispatch();
+                }
+                return;
+            }
+            // 入力前に整形済みの場合は、整形し直さずにリスナーを呼ぶ
+            final boolean changed = !FormattedEditable.isCommitting(s)
+                    && formatter.format(beforeText, beforeSelectionStart, beforeSelectionEnd,
+                    s, getSelectionStart(), getSelectionEnd(), result);
+            if (changed) {
+                // replaceで再帰的に呼ばれるとresultが上書きされるので、カーソル位置を先に退避する
+                final int selectionIndex = result.getSelectionStart();
+                s.replace(0, s.length(), result.text);
+                // セパレーター挿入後にカーソル位置がずれるので調整する
+                setSelection(selectionIndex);
+            } else {
+                // 編集完了時にだけリスナーを呼ぶ（リスナーを呼ばずに値を設定している場合を除く）
+                onEditSettled(s);
+                if (!silent) {
+                    listenerDispatcher.dispatch();
+                }
+            }
+        }
+    };
+
+    private static class FormattedDigitsKeyListener extends NumberKeyListener {
+        private static final char[] DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9'};
+        private final char[] accepted;
+        private final EditFormatter formatter;
+        private final boolean separators;
+
+        /**
+         * @param formatter  書式エンジン
+         * @param separator  セパレーター
+         * @param separators 文字列にセパレーターを含める場合はtrue、数字だけの場合はfalse
+         */
+        FormattedDigitsKeyListener(EditFormatter formatter, char separator, boolean separators) {
+            this.formatter = formatter;
+            this.separators = separators;
+            if (separators) {
+                accepted = new char[DIGITS.length + 1];
+                System.arraycopy(DIGITS, 0, accepted, 0, DIGITS.length);
+                accepted[DIGITS.length] = separator;
+            } else {
+                accepted = DIGITS;
+            }
+        }
+
+        @NonNull
+        @Override
+        protected char[] getAcceptedChars() {
+            return accepted;
+        }
+
+        @Override
+        public CharSequence filter(CharSequence source, int start, int end, Spanned dest, int dstart, int dend) {
+
+            // 貼り付けなど複数文字の入力は、書式エンジンが正規化、切り詰め、セパレーターの挿入を一回の走査で行う
+            if (end - start > 1) {
+                return separators
+                        ? formatter.filter(source, start, end, dest, dstart, dend)
+                        : formatter.filterDigits(source, start, end, dest, dstart, dend);
+            }
+
+            // 入力文字（数字かどうか）をチェック
+            final CharSequence out = super.filter(source, start, end, dest, dstart, dend);
+
+            if (TextUtils.equals(out, EMPTY)) {
+                return EMPTY;
+            }
+
+            if (out != null) {
+                source = out;
+                start = 0;
+                end = source.length();
+            }
+
+            // セパレーター位置と入力文字数のチェックは書式エンジンに委ねる
+            if (!separators) {
+                final CharSequence digitsOut = formatter.filterDigits(source, start, end, dest, dstart, dend);
+                return digitsOut == null ? source : digitsOut;
+            }
+            return formatter.filter(source, start, end, dest, dstart, dend);
+        }
+
+        @Override
+        public int getInputType() {
+            return InputType.TYPE_CLASS_NUMBER;
+        }
+    }
+
+    /**
+     * 現在の文字列からセパレーターを除いた数字を、コピーせずに参照する
+     */
+    private final class DigitsView implements CharSequence {
+
+        // 編集リビジョンごとの桁数と、順番に参照する場合に備えて最後に参照した桁の位置
+        private int revision = -1;
+        private int length;
+        private int lastDigitIndex;
+        private int lastTextIndex;
+
+        private CharSequence text() {
+            final Editable text = getText();
+            return text == null ? EMPTY : text;
+        }
+
+        private void update(CharSequence text) {
+            if (revision == editRevision) {
+                return;
+            }
+            final int textLength = text.length();
+            int count = 0;
+            for (int i = 0; i < textLength; i++) {
+                if (text.charAt(i) != separator) {
+                    count++;
+                }
+            }
+            length = count;
+            lastDigitIndex = 0;
+            lastTextIndex = 0;
+            revision = editRevision;
+        }
+
+        @Override
+        public int length() {
+            update(text());
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            final CharSequence text = text();
+            update(text);
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("index=" + index + ", length=" + length);
+            }
+            // 前回参照した桁より前の場合は先頭から数え直す
+            if (index < lastDigitIndex) {
+                lastDigitIndex = 0;
+                lastTextIndex = 0;
+            }
+            int digitIndex = lastDigitIndex;
+            int textIndex = lastTextIndex;
+            while (true) {
+                final char c = text.charAt(textIndex);
+                if (c != separator) {
+                    if (digitIndex == index) {
+                        lastDigitIndex = digitIndex;
+                        lastTextIndex = textIndex;
+                        return c;
+                    }
+                    digitIndex++;
+                }
+                textIndex++;
+            }
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            final CharSequence text = text();
+            return TextEdits.removeSeparators(text, 0, text.length(), separator);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import android.text.InputFilter;
+import android.text.Selection;
+import android.text.SpannableStringBuilder;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Editable that formats each edit before committing it.
+ * <p>
+ * {@link InputFilter} can only rewrite the replaced range, while inserting a digit moves every
+ * separator after it. This editable runs the filters itself, formats the text after the edit and
+ * commits only the range that differs from the current text, so an edit changes the buffer once
+ * and {@link android.text.TextWatcher}s are called once.
+ * When disabled, it behaves as {@link SpannableStringBuilder}.
+ */
+final class FormattedEditable extends SpannableStringBuilder {
+
+    private static final InputFilter[] NO_FILTERS = new InputFilter[0];
+
+    private final EditReducer reducer;
+    private final EditResult result = new EditResult();
+    private final SplicedText afterText = new SplicedText();
+    private boolean enabled;
+    private boolean committing;
+
+    FormattedEditable(@NonNull CharSequence text, @NonNull EditFormatter formatter, boolean enabled) {
+        super(text);
+        this.reducer = new EditReducer(formatter);
+        this.enabled = enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * 整形済みの編集を反映している最中か否か（TextWatcherで整形し直す必要はない）
+     *
+     * @param text TextWatcherに渡された文字列
+     * @return 整形済みの編集を反映している最中の場合はtrue
+     */
+    static boolean isCommitting(@NonNull CharSequence text) {
+        return text instanceof FormattedEditable && ((FormattedEditable) text).committing;
+    }
+
+    /**
+     * 整形済みの文字列で全体を置き換える。フィルターを通さず、TextWatcherでも整形し直さない
+     *
+     * @param text 整形済みの文字列
+     */
+    void commit(@NonNull CharSequence text) {
+        final InputFilter[] filters = getFilters();
+        committing = true;
+        setFilters(NO_FILTERS);
+        try {
+            super.replace(0, length(), text, 0, text.length());
+        } finally {
+            setFilters(filters);
+            committing = false;
+        }
+    }
+
+    @Override
+    public SpannableStringBuilder replace(int start, int end, CharSequence tb, int tbstart, int tbend) {
+        if (!enabled || committing) {
+            return super.replace(start, end, tb, tbstart, tbend);
+        }
+
+        final InputFilter[] filters = getFilters();
+        for (InputFilter filter : filters) {
+            final CharSequence repl = filter.filter(tb, tbstart, tbend, this, start, end);
+            if (repl != null) {
+                tb = repl;
+                tbstart = 0;
+                tbend = repl.length();
+            }
+        }
+
+        // 編集後の文字列（文字列を生成せずに参照する）を整形する。
+        // 整形後の文字列での置換をフィルターに通す段階も含めて、TextWatcherで整形した場合と同じ結果になる
+        final int selectionStart = Selection.getSelectionStart(this);
+        final int selectionEnd = Selection.getSelectionEnd(this);
+        final int newLength = tbend - tbstart;
+        final boolean changed = reducer.format(this, selectionStart, selectionEnd,
+                afterText.set(tb, tbstart, tbend, this, start, end),
+                TextEdits.moveSelection(selectionStart, start, end, newLength),
+                TextEdits.moveSelection(selectionEnd, start, end, newLength),
+                result);
+        afterText.clear();
+
+        // フィルターは適用済みなので、反映時には外しておく
+        committing = true;
+        setFilters(NO_FILTERS);
+        try {
+            if (!changed) {
+                return super.replace(start, end, tb, tbstart, tbend);
+            }
+            // 整形後の文字列のうち、現在の文字列と異なる範囲だけを置換する
+            final TextBuffer text = result.text;
+            final int length = length();
+            final int textLength = text.length();
+            final int max = Math.min(length, textLength);
+            int prefix = 0;
+            while (prefix < max && charAt(prefix) == text.charAt(prefix)) {
+                prefix++;
+            }
+            int suffix = 0;
+            while (suffix < max - prefix && charAt(length - 1 - suffix) == text.charAt(textLength - 1 - suffix)) {
+                suffix++;
+            }
+            final int selection = result.getSelectionStart();
+            super.replace(prefix, length - suffix, text, prefix, textLength - suffix);
+            Selection.setSelection(this, selection);
+            return this;
+        } finally {
+            setFilters(filters);
+            committing = false;
+        }
+    }
+}
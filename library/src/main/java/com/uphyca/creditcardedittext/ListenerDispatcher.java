@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+/**
+ * リスナーの呼び出しをまとめる。
+ * <p>
+ * 呼び出しを要求されると、即時、次のフレーム、または一定時間入力がなくなった後に一度だけ{@code target}を実行する。
+ * {@code target}は実行時点の最新の状態をリスナーに渡すので、最後の変更は必ず通知される。
+ * Choreographerのない API Level 16 未満では、次のフレームの代わりにメインスレッドのメッセージキューの次の順番で呼び出す。
+ * メインスレッドからのみ呼び出すこと。
+ */
+final class ListenerDispatcher implements Runnable {
+
+    /**
+     * 変更ごとに即時に呼び出す
+     */
+    static final long IMMEDIATE = -1L;
+
+    /**
+     * 次のフレームでまとめて呼び出す
+     */
+    static final long NEXT_FRAME = 0L;
+
+    private final Runnable target;
+    private Handler handler;
+    private FrameCallback frameCallback;
+    private long delayMillis = IMMEDIATE;
+    private boolean frameCallbackPosted;
+    private boolean delayedCallbackPosted;
+
+    ListenerDispatcher(@NonNull Runnable target) {
+        this.target = target;
+    }
+
+    /**
+     * 呼び出しの遅延を設定する。保留中の呼び出しがある場合は即時に実行する。
+     *
+     * @param delayMillis {@link #IMMEDIATE}、{@link #NEXT_FRAME}、または入力がなくなってから呼び出すまでの時間（ミリ秒）
+     */
+    void setDelay(long delayMillis) {
+        if (delayMillis < IMMEDIATE) {
+            throw new IllegalArgumentException("delayMillis must be IMMEDIATE, NEXT_FRAME or positive: " + delayMillis);
+        }
+        flush();
+        this.delayMillis = delayMillis;
+    }
+
+    long getDelay() {
+        return delayMillis;
+    }
+
+    /**
+     * 呼び出しを要求する
+     */
+    void dispatch() {
+        if (delayMillis == IMMEDIATE) {
+            target.run();
+        } else if (delayMillis == NEXT_FRAME) {
+            // 同じフレーム内の変更は最初の要求で登録したコールバックにまとめる
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                if (!frameCallbackPosted) {
+                    frameCallbackPosted = true;
+                    if (frameCallback == null) {
+                        frameCallback = new FrameCallback(this);
+                    }
+                    frameCallback.post();
+                }
+            } else if (!delayedCallbackPosted) {
+                delayedCallbackPosted = true;
+                handler().post(this);
+            }
+        } else {
+            // 入力が続いている間は呼び出しを先送りする
+            if (delayedCallbackPosted) {
+                handler().removeCallbacks(this);
+            }
+            delayedCallbackPosted = true;
+            handler().postDelayed(this, delayMillis);
+        }
+    }
+
+    private Handler handler() {
+        if (handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+        }
+        return handler;
+    }
+
+    /**
+     * 保留中の呼び出しがあれば即時に実行する
+     */
+    void flush() {
+        if (cancel()) {
+            target.run();
+        }
+    }
+
+    /**
+     * 保留中の呼び出しを取り消す
+     *
+     * @return 保留中の呼び出しがあった場合はtrue
+     */
+    boolean cancel() {
+        final boolean pending = frameCallbackPosted || delayedCallbackPosted;
+        if (frameCallbackPosted) {
+            frameCallbackPosted = false;
+            frameCallback.remove();
+        }
+        if (delayedCallbackPosted) {
+            delayedCallbackPosted = false;
+            handler.removeCallbacks(this);
+        }
+        return pending;
+    }
+
+    private void doFrame() {
+        frameCallbackPosted = false;
+        target.run();
+    }
+
+    @Override
+    public void run() {
+        delayedCallbackPosted = false;
+        target.run();
+    }
+
+    /**
+     * Choreographerのコールバック。API Level 16 以上でだけ読み込まれるよう、別のクラスにしておく
+     */
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static final class FrameCallback implements Choreographer.FrameCallback {
+
+        private final ListenerDispatcher dispatcher;
+
+        FrameCallback(ListenerDispatcher dispatcher) {
+            this.dispatcher = dispatcher;
+        }
+
+        void post() {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        void remove() {
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            dispatcher.doFrame();
+        }
+    }
+}
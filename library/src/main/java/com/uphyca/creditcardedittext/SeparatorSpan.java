@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.text.style.ReplacementSpan;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Draws a separator in front of the character it is attached to.
+ * <p>
+ * Used when the text holds only digits, so the separator is not a character of the text.
+ */
+final class SeparatorSpan extends ReplacementSpan {
+
+    private final String separator;
+
+    SeparatorSpan(char separator) {
+        this.separator = String.valueOf(separator);
+    }
+
+    @Override
+    public int getSize(@NonNull Paint paint, CharSequence text, int start, int end, Paint.FontMetricsInt fm) {
+        if (fm != null) {
+            paint.getFontMetricsInt(fm);
+        }
+        return Math.round(paint.measureText(separator) + paint.measureText(text, start, end));
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas, CharSequence text, int start, int end,
+                     float x, int top, int y, int bottom, @NonNull Paint paint) {
+        canvas.drawText(separator, x, y, paint);
+        canvas.drawText(text, start, end, x + paint.measureText(separator), y, paint);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 uPhyca, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.uphyca.creditcardedittext;
+
+import android.text.Spannable;
+import android.text.Spanned;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 数字だけの文字列に、書式のセパレーターを描画するスパンを設定する
+ * <p>
+ * スパンはグループの先頭の桁に設定し、使いまわす。
+ */
+final class SeparatorSpans {
+
+    private final char separator;
+    private SeparatorSpan[] spans = new SeparatorSpan[0];
+
+    SeparatorSpans(char separator) {
+        this.separator = separator;
+    }
+
+    /**
+     * 書式に従ってスパンを設定し直す
+     *
+     * @param text   数字だけの文字列
+     * @param format 書式
+     */
+    void apply(@NonNull Spannable text, @NonNull GroupFormat format) {
+        final int[] groups = format.groups();
+        if (spans.length < groups.length) {
+            final SeparatorSpan[] newSpans = new SeparatorSpan[groups.length];
+            System.arraycopy(spans, 0, newSpans, 0, spans.length);
+            for (int i = spans.length; i < groups.length; i++) {
+                newSpans[i] = new SeparatorSpan(separator);
+            }
+            spans = newSpans;
+        }
+
+        final int length = text.length();
+        int count = 0;
+        int digitIndex = 0;
+        for (int group : groups) {
+            digitIndex += group;
+            // 次の桁がない場合はセパレーターを描画しない
+            if (digitIndex >= length) {
+                break;
+            }
+            text.setSpan(spans[count++], digitIndex, digitIndex + 1, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        for (int i = count; i < spans.length; i++) {
+            text.removeSpan(spans[i]);
+        }
+    }
+
+    /**
+     * 全てのスパンを除去する
+     *
+     * @param text 文字列
+     */
+    void clear(@NonNull Spannable text) {
+        for (SeparatorSpan span : spans) {
+            text.removeSpan(span);
+        }
+    }
+}